@@ -0,0 +1,101 @@
+package com.journeyapps.barcodescanner.benchmark;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+
+import com.journeyapps.barcodescanner.SourceData;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The checked-in corpus of NV21 preview frames.
+ *
+ * Each frame is a gzipped NV21 image, as delivered by a camera held in portrait, so it needs a
+ * rotation of 90 degrees to display orientation.
+ *
+ * @see CorpusGenerator
+ */
+public final class Corpus {
+    public static final String[] RESOLUTIONS = {"640x480", "1280x720", "1920x1080"};
+
+    /**
+     * A frame without a barcode, as most preview frames are.
+     */
+    public static final String EMPTY = "empty";
+    public static final String QR_CODE = "qr_code";
+    public static final String INVERTED_QR_CODE = "inverted_qr_code";
+    public static final String CODE_128 = "code_128";
+
+    /**
+     * Camera rotation of the frames, relative to display orientation.
+     */
+    public static final int ROTATION = 90;
+
+    private Corpus() {
+    }
+
+    /**
+     * @param resolution the resolution, for example "640x480"
+     * @return {width, height}
+     */
+    public static int[] parseResolution(String resolution) {
+        String[] parts = resolution.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    static String fileName(String name, int width, int height) {
+        return name + "_" + width + "x" + height + ".nv21.gz";
+    }
+
+    /**
+     * Load a frame.
+     *
+     * @param name   the frame name, for example QR_CODE
+     * @param width  the frame width
+     * @param height the frame height
+     * @return the NV21 data
+     * @throws IOException if the frame cannot be read
+     */
+    public static byte[] load(String name, int width, int height) throws IOException {
+        String path = "/frames/" + fileName(name, width, height);
+        InputStream resource = Corpus.class.getResourceAsStream(path);
+        if (resource == null) {
+            throw new IOException("Missing frame " + path);
+        }
+        byte[] data = new byte[width * height * 3 / 2];
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(resource))) {
+            in.readFully(data);
+        }
+        return data;
+    }
+
+    /**
+     * Load a frame as the camera delivers it, cropped to the default framing rectangle of
+     * BarcodeView: a centered square, with a margin of 10% of the display width.
+     *
+     * @param name       the frame name, for example QR_CODE
+     * @param resolution the resolution, for example "640x480"
+     * @param rotation   camera rotation relative to display rotation, in degrees
+     * @return the frame
+     * @throws IOException if the frame cannot be read
+     */
+    public static SourceData sourceData(String name, String resolution, int rotation) throws IOException {
+        int[] size = parseResolution(resolution);
+        int width = size[0];
+        int height = size[1];
+        SourceData sourceData = new SourceData(load(name, width, height), width, height, ImageFormat.NV21, rotation);
+
+        boolean rotated90 = rotation % 180 != 0;
+        int displayWidth = rotated90 ? height : width;
+        int displayHeight = rotated90 ? width : height;
+        int margin = Math.min(displayWidth, displayHeight) / 10;
+        int side = Math.min(displayWidth, displayHeight) - 2 * margin;
+        int left = (displayWidth - side) / 2;
+        int top = (displayHeight - side) / 2;
+        sourceData.setCropRect(new Rect(left, top, left + side, top + side));
+        return sourceData;
+    }
+}
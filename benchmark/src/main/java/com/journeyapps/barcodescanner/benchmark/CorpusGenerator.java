@@ -0,0 +1,113 @@
+package com.journeyapps.barcodescanner.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates the NV21 frames in src/main/resources/frames, as a camera held in portrait would see
+ * them: landscape frames, with the barcode rotated 90 degrees counter-clockwise.
+ *
+ * The frames are checked in, so that results stay comparable. Regenerate them with:
+ *
+ *   java -cp ... com.journeyapps.barcodescanner.benchmark.CorpusGenerator benchmark/src/main/resources/frames
+ */
+public final class CorpusGenerator {
+    private static final int DARK = 40;
+    private static final int LIGHT = 200;
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException, WriterException {
+        File dir = new File(args.length > 0 ? args[0] : "src/main/resources/frames");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        for (String resolution : Corpus.RESOLUTIONS) {
+            int[] size = Corpus.parseResolution(resolution);
+            int width = size[0];
+            int height = size[1];
+
+            write(dir, Corpus.EMPTY, width, height, frame(width, height, null, false));
+            write(dir, Corpus.QR_CODE, width, height, frame(width, height, qrCode(height / 2), false));
+            write(dir, Corpus.INVERTED_QR_CODE, width, height, frame(width, height, qrCode(height / 2), true));
+            write(dir, Corpus.CODE_128, width, height, frame(width, height, code128(height / 2, width / 6), false));
+        }
+    }
+
+    private static BitMatrix qrCode(int size) throws WriterException {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, 4);
+        return new MultiFormatWriter().encode("https://github.com/journeyapps/zxing-android-embedded",
+                BarcodeFormat.QR_CODE, size, size, hints);
+    }
+
+    private static BitMatrix code128(int length, int barHeight) throws WriterException {
+        return new MultiFormatWriter().encode("ZXING-0123456789", BarcodeFormat.CODE_128, length, barHeight, null);
+    }
+
+    /**
+     * Render a barcode in the center of a frame with a smooth background.
+     *
+     * @param barcode  the barcode in display orientation, or null for an empty frame
+     * @param inverted true to invert the frame, rendering light modules on a dark background
+     */
+    private static byte[] frame(int width, int height, BitMatrix barcode, boolean inverted) {
+        byte[] data = new byte[width * height * 3 / 2];
+
+        // Uneven lighting, brighter in the center.
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float dx = (x - width / 2f) / width;
+                float dy = (y - height / 2f) / height;
+                data[y * width + x] = (byte) (LIGHT - 160 * (dx * dx + dy * dy));
+            }
+        }
+
+        if (barcode != null) {
+            // The barcode is upright in display orientation, so its width runs along the frame
+            // height. Display (bx, by) maps to sensor (by, barcodeWidth - 1 - bx).
+            int barcodeWidth = barcode.getWidth();
+            int barcodeHeight = barcode.getHeight();
+            int left = (width - barcodeHeight) / 2;
+            int top = (height - barcodeWidth) / 2;
+            for (int by = 0; by < barcodeHeight; by++) {
+                for (int bx = 0; bx < barcodeWidth; bx++) {
+                    int index = (top + barcodeWidth - 1 - bx) * width + left + by;
+                    data[index] = (byte) (barcode.get(bx, by) ? DARK : LIGHT);
+                }
+            }
+        }
+
+        if (inverted) {
+            for (int i = 0; i < width * height; i++) {
+                data[i] = (byte) (255 - (data[i] & 0xff));
+            }
+        }
+
+        // Neutral chroma.
+        for (int i = width * height; i < data.length; i++) {
+            data[i] = (byte) 128;
+        }
+        return data;
+    }
+
+    private static void write(File dir, String name, int width, int height, byte[] data) throws IOException {
+        File file = new File(dir, Corpus.fileName(name, width, height));
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            out.write(data);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.journeyapps.barcodescanner.benchmark;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Result;
+import com.journeyapps.barcodescanner.Decoder;
+import com.journeyapps.barcodescanner.InvertedDecoder;
+import com.journeyapps.barcodescanner.MixedPolarityDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding the framing rectangle of a preview frame with Decoder, InvertedDecoder and
+ * MixedPolarityDecoder, using a MultiFormatReader for all formats.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({Corpus.EMPTY, Corpus.QR_CODE, Corpus.INVERTED_QR_CODE, Corpus.CODE_128})
+    public String frame;
+
+    private LuminanceSource source;
+    private Decoder decoder;
+    private Decoder invertedDecoder;
+    private Decoder mixedPolarityDecoder;
+
+    @Setup
+    public void setup() throws IOException {
+        source = Corpus.sourceData(frame, resolution, Corpus.ROTATION).createSource();
+        decoder = new Decoder(new MultiFormatReader());
+        invertedDecoder = new InvertedDecoder(new MultiFormatReader());
+        mixedPolarityDecoder = new MixedPolarityDecoder(new MultiFormatReader());
+    }
+
+    @Benchmark
+    public Result decode() {
+        return decoder.decode(source);
+    }
+
+    @Benchmark
+    public Result invertedDecode() {
+        return invertedDecoder.decode(source);
+    }
+
+    @Benchmark
+    public Result mixedPolarityDecode() {
+        return mixedPolarityDecoder.decode(source);
+    }
+}
@@ -0,0 +1,147 @@
+package com.journeyapps.barcodescanner.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.journeyapps.barcodescanner.Decoder;
+import com.journeyapps.barcodescanner.DecoderResultPointCallback;
+import com.journeyapps.barcodescanner.DefaultDecoderFactory;
+import com.journeyapps.barcodescanner.SourceData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full decode path of a preview frame, from creating the source to reading the barcode, with
+ * the decoders created by DefaultDecoderFactory for common configurations.
+ *
+ * Only one resolution by default, to keep the number of combinations down. Override it with
+ * -p resolution=640x480,1920x1080.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecoderFactoryBenchmark {
+    private static final Collection<BarcodeFormat> ONE_D_FORMATS = EnumSet.of(
+            BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.EAN_13, BarcodeFormat.EAN_8,
+            BarcodeFormat.CODE_39, BarcodeFormat.CODE_93, BarcodeFormat.CODE_128,
+            BarcodeFormat.ITF, BarcodeFormat.CODABAR);
+
+    @Param({"1280x720"})
+    public String resolution;
+
+    @Param({Corpus.EMPTY, Corpus.QR_CODE, Corpus.CODE_128})
+    public String frame;
+
+    /**
+     * all: all formats, the default.
+     * qr_code: QR Code only.
+     * qr_code_sensor: QR Code only, decoded in camera orientation.
+     * one_d: all 1D formats.
+     * try_harder: all formats, with DecodeHintType.TRY_HARDER.
+     * inverted: all formats, with the inverted flag of the decoder set.
+     * adaptive: all formats, with AdaptiveBinarizerDecoder.
+     * scheduled: all formats, with FormatSchedulingDecoder. Averaged over the format groups.
+     * scheduled_one_d: same as scheduled, with the 1D formats decoded in every frame.
+     */
+    @Param({"all", "qr_code", "qr_code_sensor", "one_d", "try_harder", "inverted", "adaptive", "scheduled", "scheduled_one_d"})
+    public String config;
+
+    private SourceData sourceData;
+    private Decoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+        sourceData = Corpus.sourceData(frame, resolution, Corpus.ROTATION);
+        decoder = createDecoder(config);
+    }
+
+    private static Decoder createDecoder(String config) {
+        Collection<BarcodeFormat> formats = null;
+        Map<DecodeHintType, Object> hints = null;
+        boolean inverted = false;
+        boolean sensorOrientation = false;
+        boolean adaptiveBinarizer = false;
+        boolean formatScheduling = false;
+        boolean oneDEveryFrame = false;
+        switch (config) {
+            case "all":
+                break;
+            case "qr_code":
+                formats = Collections.singleton(BarcodeFormat.QR_CODE);
+                break;
+            case "qr_code_sensor":
+                formats = Collections.singleton(BarcodeFormat.QR_CODE);
+                sensorOrientation = true;
+                break;
+            case "one_d":
+                formats = ONE_D_FORMATS;
+                break;
+            case "try_harder":
+                hints = new EnumMap<>(DecodeHintType.class);
+                hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+                break;
+            case "inverted":
+                inverted = true;
+                break;
+            case "adaptive":
+                adaptiveBinarizer = true;
+                break;
+            case "scheduled":
+                formatScheduling = true;
+                break;
+            case "scheduled_one_d":
+                formatScheduling = true;
+                oneDEveryFrame = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown config " + config);
+        }
+
+        DefaultDecoderFactory factory = new DefaultDecoderFactory(formats, hints, null, inverted);
+        factory.setDecodeInSensorOrientation(sensorOrientation);
+        factory.setAdaptiveBinarizer(adaptiveBinarizer);
+        factory.setFormatScheduling(formatScheduling);
+        factory.setOneDEveryFrame(oneDEveryFrame);
+
+        // Same as BarcodeView.
+        DecoderResultPointCallback callback = new DecoderResultPointCallback();
+        Map<DecodeHintType, Object> baseHints = new EnumMap<>(DecodeHintType.class);
+        baseHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, callback);
+        Decoder decoder = factory.createDecoder(baseHints);
+        callback.setDecoder(decoder);
+        return decoder;
+    }
+
+    @Benchmark
+    public Result decode() {
+        LuminanceSource source;
+        if (decoder.isDecodeInSensorOrientation()) {
+            source = sourceData.createSensorSource();
+        } else {
+            source = sourceData.createSource();
+        }
+        return decoder.decode(source);
+    }
+}
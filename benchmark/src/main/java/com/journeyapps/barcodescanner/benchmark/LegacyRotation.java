@@ -0,0 +1,47 @@
+package com.journeyapps.barcodescanner.benchmark;
+
+/**
+ * The rotations as SourceData implemented them before the allocation-free, blocked versions.
+ * Kept as a baseline for RotationBenchmark.
+ */
+final class LegacyRotation {
+    private LegacyRotation() {
+    }
+
+    static byte[] rotateCW(byte[] data, int imageWidth, int imageHeight) {
+        byte[] yuv = new byte[imageWidth * imageHeight];
+        int i = 0;
+        for (int x = 0; x < imageWidth; x++) {
+            for (int y = imageHeight - 1; y >= 0; y--) {
+                yuv[i] = data[y * imageWidth + x];
+                i++;
+            }
+        }
+        return yuv;
+    }
+
+    static byte[] rotate180(byte[] data, int imageWidth, int imageHeight) {
+        int n = imageWidth * imageHeight;
+        byte[] yuv = new byte[n];
+
+        int i = n - 1;
+        for (int j = 0; j < n; j++) {
+            yuv[i] = data[j];
+            i--;
+        }
+        return yuv;
+    }
+
+    static byte[] rotateCCW(byte[] data, int imageWidth, int imageHeight) {
+        int n = imageWidth * imageHeight;
+        byte[] yuv = new byte[n];
+        int i = n - 1;
+        for (int x = 0; x < imageWidth; x++) {
+            for (int y = imageHeight - 1; y >= 0; y--) {
+                yuv[i] = data[y * imageWidth + x];
+                i--;
+            }
+        }
+        return yuv;
+    }
+}
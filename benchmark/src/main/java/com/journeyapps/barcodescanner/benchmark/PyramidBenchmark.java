@@ -0,0 +1,78 @@
+package com.journeyapps.barcodescanner.benchmark;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.journeyapps.barcodescanner.Decoder;
+import com.journeyapps.barcodescanner.PyramidDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binarizing and decoding the framing rectangle of a preview frame at full, half and quarter
+ * resolution, with PyramidDecoder.
+ *
+ * binarize includes downscaling the source. decode falls back to full resolution when nothing is
+ * found in the downscaled source, as for the empty frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PyramidBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({Corpus.EMPTY, Corpus.QR_CODE})
+    public String frame;
+
+    /**
+     * The downscale factor, 1 for full resolution only.
+     */
+    @Param({"1", "2", "4"})
+    public int factor;
+
+    private LuminanceSource source;
+    private PyramidDecoder pyramidDecoder;
+    private Decoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+        source = Corpus.sourceData(frame, resolution, Corpus.ROTATION).createSource();
+        if (factor == 1) {
+            decoder = new Decoder(new MultiFormatReader());
+        } else {
+            pyramidDecoder = new PyramidDecoder(new MultiFormatReader(), factor);
+            decoder = pyramidDecoder;
+        }
+    }
+
+    @Benchmark
+    public BitMatrix binarize() throws NotFoundException {
+        LuminanceSource source = pyramidDecoder == null ? this.source : pyramidDecoder.downscale(this.source);
+        return new HybridBinarizer(source).getBlackMatrix();
+    }
+
+    @Benchmark
+    public Result decode() {
+        return decoder.decode(source);
+    }
+}
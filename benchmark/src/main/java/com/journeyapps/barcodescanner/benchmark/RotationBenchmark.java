@@ -0,0 +1,76 @@
+package com.journeyapps.barcodescanner.benchmark;
+
+import com.journeyapps.barcodescanner.SourceData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the allocation-free, blocked rotations in SourceData with the previous implementations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RotationBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    private int width;
+    private int height;
+    private byte[] data;
+    private byte[] dest;
+
+    @Setup
+    public void setup() throws IOException {
+        int[] size = Corpus.parseResolution(resolution);
+        width = size[0];
+        height = size[1];
+        data = Corpus.load(Corpus.QR_CODE, width, height);
+        dest = new byte[width * height];
+    }
+
+    @Benchmark
+    public byte[] legacyRotateCW() {
+        return LegacyRotation.rotateCW(data, width, height);
+    }
+
+    @Benchmark
+    public byte[] rotateCW() {
+        return SourceData.rotateCW(data, width, height, dest);
+    }
+
+    @Benchmark
+    public byte[] legacyRotate180() {
+        return LegacyRotation.rotate180(data, width, height);
+    }
+
+    @Benchmark
+    public byte[] rotate180() {
+        return SourceData.rotate180(data, width, height, dest);
+    }
+
+    @Benchmark
+    public byte[] legacyRotateCCW() {
+        return LegacyRotation.rotateCCW(data, width, height);
+    }
+
+    @Benchmark
+    public byte[] rotateCCW() {
+        return SourceData.rotateCCW(data, width, height, dest);
+    }
+}
@@ -0,0 +1,54 @@
+package com.journeyapps.barcodescanner.benchmark;
+
+import com.google.zxing.LuminanceSource;
+import com.journeyapps.barcodescanner.SourceData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating the luminance source for the framing rectangle of a preview frame, in display and in
+ * camera orientation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SourceBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"0", "90", "180", "270"})
+    public int rotation;
+
+    private SourceData sourceData;
+
+    @Setup
+    public void setup() throws IOException {
+        sourceData = Corpus.sourceData(Corpus.QR_CODE, resolution, rotation);
+    }
+
+    @Benchmark
+    public LuminanceSource createSource() {
+        return sourceData.createSource();
+    }
+
+    @Benchmark
+    public LuminanceSource createSensorSource() {
+        return sourceData.createSensorSource();
+    }
+}
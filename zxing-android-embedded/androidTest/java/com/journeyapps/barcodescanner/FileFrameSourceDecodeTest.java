@@ -0,0 +1,165 @@
+package com.journeyapps.barcodescanner;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.android.R;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.journeyapps.barcodescanner.camera.FileFrameSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decode frames replayed from a file, through the same DecoderThread as the camera preview.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FileFrameSourceDecodeTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final String TEXT = "FileFrameSource";
+
+    private File file;
+    private FileFrameSource frameSource;
+    private DecoderThread decoderThread;
+    private final BlockingQueue<Message> messages = new LinkedBlockingQueue<>();
+
+    /**
+     * An NV21 frame with a QR code in the middle, or a blank frame.
+     */
+    private static byte[] frame(boolean withBarcode) throws WriterException {
+        byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+        Arrays.fill(data, 0, WIDTH * HEIGHT, (byte) 255);
+        // Neutral chroma.
+        Arrays.fill(data, WIDTH * HEIGHT, data.length, (byte) 128);
+        if (withBarcode) {
+            BitMatrix matrix = new QRCodeWriter().encode(TEXT, BarcodeFormat.QR_CODE, 200, 200);
+            int left = (WIDTH - matrix.getWidth()) / 2;
+            int top = (HEIGHT - matrix.getHeight()) / 2;
+            for (int y = 0; y < matrix.getHeight(); y++) {
+                for (int x = 0; x < matrix.getWidth(); x++) {
+                    if (matrix.get(x, y)) {
+                        data[(top + y) * WIDTH + left + x] = 0;
+                    }
+                }
+            }
+        }
+        return data;
+    }
+
+    @Before
+    public void setUp() throws IOException, WriterException {
+        file = File.createTempFile("frames", ".nv21", InstrumentationRegistry.getTargetContext().getCacheDir());
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(frame(false));
+            output.write(frame(false));
+            output.write(frame(true));
+        } finally {
+            output.close();
+        }
+        frameSource = new FileFrameSource(file, WIDTH, HEIGHT, ImageFormat.NV21, 0);
+        frameSource.setLooping(false);
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                if (decoderThread != null) {
+                    decoderThread.stop();
+                }
+                frameSource.close();
+            }
+        });
+        file.delete();
+    }
+
+    private void startDecoding() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    frameSource.open();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                Handler resultHandler = new Handler(Looper.getMainLooper(), new Handler.Callback() {
+                    @Override
+                    public boolean handleMessage(Message message) {
+                        messages.add(Message.obtain(message));
+                        return true;
+                    }
+                });
+                decoderThread = new DecoderThread(frameSource, new Decoder(new MultiFormatReader()), resultHandler);
+                decoderThread.setCropRect(new Rect(0, 0, WIDTH, HEIGHT));
+                decoderThread.start();
+            }
+        });
+    }
+
+    private Message nextMessage() throws InterruptedException {
+        Message message = messages.poll(10, TimeUnit.SECONDS);
+        assertNotNull("Timed out waiting for the decoder", message);
+        return message;
+    }
+
+    @Test
+    public void testDecodeReplay() throws InterruptedException {
+        startDecoding();
+
+        // Frames are decoded in order, one at a time.
+        assertEquals(R.id.zxing_decode_failed, nextMessage().what);
+        assertEquals(R.id.zxing_decode_failed, nextMessage().what);
+        Message message = nextMessage();
+        assertEquals(R.id.zxing_decode_succeeded, message.what);
+        BarcodeResult result = (BarcodeResult) message.obj;
+        assertEquals(TEXT, result.getText());
+        assertEquals(BarcodeFormat.QR_CODE, result.getBarcodeFormat());
+
+        assertEquals(3, frameSource.getFramesDelivered());
+        // The end of the file stops the replay.
+        assertNull(messages.poll(500, TimeUnit.MILLISECONDS));
+        assertFalse(frameSource.isOpen());
+    }
+
+    @Test
+    public void testCloseWhileDecoding() throws InterruptedException {
+        frameSource.setLooping(true);
+        startDecoding();
+        nextMessage();
+
+        // The workers keep requesting frames while the source is closed under them.
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                frameSource.close();
+            }
+        });
+        Thread.sleep(200);
+        messages.clear();
+        assertNull(messages.poll(500, TimeUnit.MILLISECONDS));
+    }
+}
@@ -185,6 +185,12 @@ public final class Intents {
          */
         public static final String INVERTED_SCAN = "INVERTED_SCAN";
 
+        /***
+         * The scan should read both normal and inverted barcodes. If INVERTED_SCAN is also set,
+         * inverted barcodes are tried first.
+         */
+        public static final String MIXED_SCAN = "MIXED_SCAN";
+
         private Scan() {
         }
     }
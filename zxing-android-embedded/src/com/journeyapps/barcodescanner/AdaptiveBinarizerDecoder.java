@@ -0,0 +1,210 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * A Decoder choosing between HybridBinarizer and GlobalHistogramBinarizer for each frame, based on
+ * how well each one did on the previous frames.
+ *
+ * GlobalHistogramBinarizer is much cheaper, and good enough for clean barcodes under even light,
+ * especially 1D barcodes. HybridBinarizer handles shadows and uneven light better.
+ *
+ * The decoder keeps moving averages of the success rate and of the decode time of each
+ * binarizer. Each frame uses the binarizer with the better success rate, or the faster one if the
+ * success rates are close. Speed only counts once both binarizers found barcodes recently: while
+ * neither does, for example before the first barcode is in view, HybridBinarizer is used. Every
+ * few frames, the other binarizer is tried instead, to keep its statistics up to date.
+ *
+ * The statistics may be read from any thread.
+ *
+ * @see DefaultDecoderFactory#setAdaptiveBinarizer(boolean)
+ */
+public class AdaptiveBinarizerDecoder extends Decoder {
+    public enum BinarizerType {
+        HYBRID,
+        GLOBAL_HISTOGRAM
+    }
+
+    /**
+     * Weight of a new frame in the moving averages.
+     */
+    private static final float SMOOTHING = 0.05f;
+
+    /**
+     * Success rates closer than this are considered equal, and the faster binarizer is used.
+     */
+    private static final float SUCCESS_RATE_TOLERANCE = 0.05f;
+
+    /**
+     * A success rate below this means no recent success: about 90 attempts with the binarizer
+     * since its last success. The rates only move when the binarizer is tried, so for the one
+     * being explored this is about 900 frames at the default exploration interval.
+     */
+    private static final float MIN_SUCCESS_RATE = 0.01f;
+
+    private static final class Statistics {
+        private long attemptCount = 0;
+        private long successCount = 0;
+        private float successRate = 0;
+        private float averageTime = 0;
+
+        void record(boolean success, long time) {
+            if (attemptCount == 0) {
+                successRate = success ? 1 : 0;
+                averageTime = time;
+            } else {
+                successRate += SMOOTHING * ((success ? 1 : 0) - successRate);
+                averageTime += SMOOTHING * (time - averageTime);
+            }
+            attemptCount++;
+            if (success) {
+                successCount++;
+            }
+        }
+    }
+
+    private final Statistics hybrid = new Statistics();
+    private final Statistics globalHistogram = new Statistics();
+
+    private int explorationInterval = 10;
+    private long frameCount = 0;
+
+    // The binarizer of the current frame, used by createBinarizer().
+    private BinarizerType current = BinarizerType.HYBRID;
+
+    /**
+     * @param reader the reader
+     */
+    public AdaptiveBinarizerDecoder(Reader reader) {
+        super(reader);
+    }
+
+    /**
+     * Default to 10.
+     *
+     * @return the interval in frames at which the other binarizer is tried, or 0 if never
+     */
+    public synchronized int getExplorationInterval() {
+        return explorationInterval;
+    }
+
+    /**
+     * Set how often the binarizer not currently preferred is tried. A shorter interval adapts
+     * faster to changes, for example in lighting, but uses the worse binarizer more often.
+     *
+     * @param explorationInterval the interval in frames, or 0 to never try the other binarizer
+     */
+    public synchronized void setExplorationInterval(int explorationInterval) {
+        if (explorationInterval < 0 || explorationInterval == 1) {
+            throw new IllegalArgumentException("Exploration interval must be 0 or at least 2");
+        }
+        this.explorationInterval = explorationInterval;
+    }
+
+    @Override
+    protected Binarizer createBinarizer(LuminanceSource source) {
+        if (current == BinarizerType.GLOBAL_HISTOGRAM) {
+            return new GlobalHistogramBinarizer(source);
+        } else {
+            return new HybridBinarizer(source);
+        }
+    }
+
+    @Override
+    public Result decode(LuminanceSource source) {
+        current = select();
+        long start = System.nanoTime();
+        Result result = super.decode(source);
+        record(current, result != null, System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public Result decode(LuminanceSource source, DecodeTimings timings) {
+        if (timings == null) {
+            return decode(source);
+        }
+        current = select();
+        long start = System.nanoTime();
+        Result result = super.decode(source, timings);
+        record(current, result != null, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * @return the binarizer to use for the next frame
+     */
+    synchronized BinarizerType select() {
+        frameCount++;
+        BinarizerType preferred = getPreferredBinarizer();
+        if (explorationInterval > 0 && frameCount % explorationInterval == 0) {
+            return preferred == BinarizerType.HYBRID ? BinarizerType.GLOBAL_HISTOGRAM : BinarizerType.HYBRID;
+        }
+        return preferred;
+    }
+
+    synchronized void record(BinarizerType type, boolean success, long time) {
+        statistics(type).record(success, time);
+    }
+
+    private Statistics statistics(BinarizerType type) {
+        return type == BinarizerType.GLOBAL_HISTOGRAM ? globalHistogram : hybrid;
+    }
+
+    /**
+     * HybridBinarizer is preferred until GlobalHistogramBinarizer found barcodes recently.
+     *
+     * @return the binarizer currently preferred
+     */
+    public synchronized BinarizerType getPreferredBinarizer() {
+        if (globalHistogram.successRate < MIN_SUCCESS_RATE) {
+            // Also when neither binarizer found anything: being faster at failing is no reason.
+            return BinarizerType.HYBRID;
+        }
+        if (hybrid.successRate < MIN_SUCCESS_RATE) {
+            return BinarizerType.GLOBAL_HISTOGRAM;
+        }
+        float difference = globalHistogram.successRate - hybrid.successRate;
+        if (Math.abs(difference) > SUCCESS_RATE_TOLERANCE) {
+            return difference > 0 ? BinarizerType.GLOBAL_HISTOGRAM : BinarizerType.HYBRID;
+        }
+        return globalHistogram.averageTime < hybrid.averageTime ? BinarizerType.GLOBAL_HISTOGRAM : BinarizerType.HYBRID;
+    }
+
+    /**
+     * @param type the binarizer
+     * @return the number of frames decoded with the binarizer
+     */
+    public synchronized long getAttemptCount(BinarizerType type) {
+        return statistics(type).attemptCount;
+    }
+
+    /**
+     * @param type the binarizer
+     * @return the number of barcodes found with the binarizer
+     */
+    public synchronized long getSuccessCount(BinarizerType type) {
+        return statistics(type).successCount;
+    }
+
+    /**
+     * @param type the binarizer
+     * @return the moving average of the fraction of frames with a barcode found, between 0 and 1
+     */
+    public synchronized float getSuccessRate(BinarizerType type) {
+        return statistics(type).successRate;
+    }
+
+    /**
+     * @param type the binarizer
+     * @return the moving average of the time taken to binarize and read a frame, in nanoseconds
+     */
+    public synchronized long getAverageTime(BinarizerType type) {
+        return (long) statistics(type).averageTime;
+    }
+}
@@ -50,10 +50,14 @@ public class BarcodeResult {
     }
 
     /**
-     * @return {@link Bitmap} with barcode preview
+     * @return {@link Bitmap} with barcode preview, or null if there is no preview, for example for
+     *     a still image
      * @see #getBitmapWithResultPoints(int)
      */
     public Bitmap getBitmap() {
+        if (sourceData == null) {
+            return null;
+        }
         return sourceData.getBitmap(mScaleFactor);
     }
 
@@ -3,13 +3,17 @@ package com.journeyapps.barcodescanner;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
+import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.client.android.R;
 import com.journeyapps.barcodescanner.camera.CameraInstance;
 import com.journeyapps.barcodescanner.camera.PictureCallback;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +30,7 @@ import java.util.Map;
  * @see CameraPreview for more details on the preview lifecycle.
  */
 public class BarcodeView extends CameraPreview {
+    private static final String TAG = BarcodeView.class.getSimpleName();
 
     private enum DecodeMode {
         NONE,
@@ -39,6 +44,25 @@ public class BarcodeView extends CameraPreview {
 
     private DecoderFactory decoderFactory;
 
+    private int decoderWorkerCount = 1;
+    private int decoderPipelineDepth = 0;
+    private long maxFrameAge = 0;
+    private float decoderTargetDutyCycle = 0;
+    private boolean exposureControl = false;
+    private float sharpnessThreshold = 0;
+    private float sceneChangeThreshold = 0;
+    private FrameSkipListener frameSkipListener;
+    private DecoderMetrics decoderMetrics;
+    private DuplicateResultFilter duplicateFilter;
+    private boolean possibleResultPointsEnabled = false;
+    private ResultPointBuffer resultPointBuffer;
+    private boolean regionOfInterestTracking = false;
+    private float regionOfInterestMargin = 0.5f;
+    private boolean decoderWarmUp = false;
+    private DecoderWarmUp warmUp;
+    // Time decoding started, for the time to the first result.
+    private long decodeStartTime = -1;
+    private long timeToFirstResult = -1;
 
     private Handler resultHandler;
 
@@ -47,8 +71,9 @@ public class BarcodeView extends CameraPreview {
         public boolean handleMessage(Message message) {
             if (message.what == R.id.zxing_decode_succeeded) {
                 BarcodeResult result = (BarcodeResult) message.obj;
+                firstResult();
 
-                if (result != null) {
+                if (result != null && !isDuplicate(result)) {
                     if (callback != null && decodeMode != DecodeMode.NONE) {
                         callback.barcodeResult(result);
                         if (decodeMode == DecodeMode.SINGLE) {
@@ -57,6 +82,29 @@ public class BarcodeView extends CameraPreview {
                     }
                 }
                 return true;
+            } else if (message.what == R.id.zxing_decode_multiple_succeeded) {
+                firstResult();
+                List<BarcodeResult> results = removeDuplicates((List<?>) message.obj);
+
+                if (callback != null && decodeMode != DecodeMode.NONE && !results.isEmpty()) {
+                    if (callback instanceof MultipleBarcodeCallback) {
+                        ((MultipleBarcodeCallback) callback).barcodeResults(results);
+                    } else if (decodeMode == DecodeMode.SINGLE) {
+                        callback.barcodeResult(results.get(0));
+                    } else {
+                        for (BarcodeResult result : results) {
+                            callback.barcodeResult(result);
+                            if (callback == null || decodeMode == DecodeMode.NONE) {
+                                // Stopped by the callback.
+                                break;
+                            }
+                        }
+                    }
+                    if (decodeMode == DecodeMode.SINGLE) {
+                        stopDecoding();
+                    }
+                }
+                return true;
             } else if (message.what == R.id.zxing_decode_failed) {
                 // Failed. Next preview is automatically tried.
                 return true;
@@ -67,6 +115,17 @@ public class BarcodeView extends CameraPreview {
                     callback.possibleResultPoints(resultPoints);
                 }
                 return true;
+            } else if (message.what == R.id.zxing_frame_skip_ratio) {
+                if (frameSkipListener != null) {
+                    frameSkipListener.skipRatioChanged((Float) message.obj);
+                }
+                return true;
+            } else if (message.what == R.id.zxing_exposure_adjustment) {
+                CameraInstance cameraInstance = getCameraInstance();
+                if (cameraInstance != null && cameraInstance.isOpen()) {
+                    cameraInstance.adjustExposure(message.arg1 > 0);
+                }
+                return true;
             } else if (message.what == R.id.zxing_just_preview) {
                 SourceData data = (SourceData) message.obj;
                 if (callback != null) {
@@ -79,6 +138,34 @@ public class BarcodeView extends CameraPreview {
     };
 
 
+    private void firstResult() {
+        if (decodeStartTime >= 0) {
+            timeToFirstResult = SystemClock.elapsedRealtime() - decodeStartTime;
+            decodeStartTime = -1;
+            Log.i(TAG, "First result after " + timeToFirstResult + " ms"
+                    + (warmUp != null ? ", warm-up took " + warmUp.getDuration() + " ms" : ""));
+        }
+    }
+
+    private boolean isDuplicate(BarcodeResult result) {
+        return decodeMode == DecodeMode.CONTINUOUS && duplicateFilter != null
+                && duplicateFilter.isDuplicate(result.getResult());
+    }
+
+    /**
+     * @param results the results from the message, checked one by one since Message.obj is untyped
+     * @return the results that are not duplicates
+     */
+    private List<BarcodeResult> removeDuplicates(List<?> results) {
+        List<BarcodeResult> filtered = new ArrayList<>(results.size());
+        for (Object result : results) {
+            if (result instanceof BarcodeResult && !isDuplicate((BarcodeResult) result)) {
+                filtered.add((BarcodeResult) result);
+            }
+        }
+        return filtered;
+    }
+
     public BarcodeView(Context context) {
         super(context);
         initialize();
@@ -112,16 +199,437 @@ public class BarcodeView extends CameraPreview {
 
         this.decoderFactory = decoderFactory;
         if (this.decoderThread != null) {
-            this.decoderThread.setDecoder(createDecoder());
+            // The worker count may have changed since decoding started.
+            this.decoderThread.setDecoders(createDecoders(decoderThread.getWorkerCount()));
+        }
+    }
+
+    /**
+     * Set the number of threads decoding preview frames. Each thread has its own Decoder, and
+     * decodes a different frame.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param decoderWorkerCount the number of decoder threads. Default to 1.
+     */
+    public void setDecoderWorkerCount(int decoderWorkerCount) {
+        Util.validateMainThread();
+
+        if (decoderWorkerCount < 1) {
+            throw new IllegalArgumentException("At least one decoder worker is required");
+        }
+        this.decoderWorkerCount = decoderWorkerCount;
+    }
+
+    /**
+     * @return the number of threads decoding preview frames
+     */
+    public int getDecoderWorkerCount() {
+        return decoderWorkerCount;
+    }
+
+    /**
+     * Set the maximum number of preview frames captured ahead of the decoder, so that capturing
+     * the next frame overlaps decoding the current one.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param decoderPipelineDepth 0, 1 or 2. Default to 0, meaning the next frame is only
+     *                             requested once a decoder is idle.
+     * @see DecoderThread#setPipelineDepth(int)
+     */
+    public void setDecoderPipelineDepth(int decoderPipelineDepth) {
+        Util.validateMainThread();
+
+        if (decoderPipelineDepth < 0 || decoderPipelineDepth > 2) {
+            throw new IllegalArgumentException("Pipeline depth must be between 0 and 2");
+        }
+        this.decoderPipelineDepth = decoderPipelineDepth;
+    }
+
+    /**
+     * @return the maximum number of preview frames captured ahead of the decoder
+     */
+    public int getDecoderPipelineDepth() {
+        return decoderPipelineDepth;
+    }
+
+    /**
+     * Set the maximum age of a preview frame when decoding starts. Older frames are skipped.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param maxFrameAge the maximum age in milliseconds. Default to 0, meaning no maximum.
+     * @see DecoderThread#setMaxFrameAge(long)
+     */
+    public void setMaxFrameAge(long maxFrameAge) {
+        Util.validateMainThread();
+
+        if (maxFrameAge < 0) {
+            throw new IllegalArgumentException("Maximum frame age must not be negative");
+        }
+        this.maxFrameAge = maxFrameAge;
+    }
+
+    /**
+     * @return the maximum age of a preview frame in milliseconds, or 0 if there is no maximum
+     */
+    public long getMaxFrameAge() {
+        return maxFrameAge;
+    }
+
+    /**
+     * Skip preview frames so that decoding keeps the decoder threads busy for at most the given
+     * fraction of the time. This keeps the camera running, and reduces CPU usage and heat on slow
+     * devices.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param decoderTargetDutyCycle the fraction of time, between 0 and 1, for example 0.6.
+     *                               Default to 0, meaning frames are never skipped.
+     * @see DecoderThread#setTargetDutyCycle(float)
+     * @see #setFrameSkipListener(FrameSkipListener)
+     */
+    public void setDecoderTargetDutyCycle(float decoderTargetDutyCycle) {
+        Util.validateMainThread();
+
+        if (decoderTargetDutyCycle < 0 || decoderTargetDutyCycle > 1) {
+            throw new IllegalArgumentException("Target duty cycle must be between 0 and 1");
+        }
+        this.decoderTargetDutyCycle = decoderTargetDutyCycle;
+    }
+
+    /**
+     * @return the target fraction of time the decoder threads are busy, or 0 if frames are never
+     * skipped
+     */
+    public float getDecoderTargetDutyCycle() {
+        return decoderTargetDutyCycle;
+    }
+
+    /**
+     * Adjust the camera exposure to keep the framing rectangle well exposed, based on a luminance
+     * histogram of the preview frames. This works without a light sensor, unlike auto torch.
+     * Frames much too dark or too bright to decode are dropped.
+     * <p>
+     * The exposure compensation is moved one step at a time. This requires exposure to be enabled
+     * in the camera settings. The torch is not switched.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param exposureControl true to adjust the exposure. Default to false.
+     * @see DecoderThread#setExposureControl(boolean)
+     * @see com.journeyapps.barcodescanner.camera.CameraSettings#setExposureEnabled(boolean)
+     */
+    public void setExposureControl(boolean exposureControl) {
+        Util.validateMainThread();
+
+        this.exposureControl = exposureControl;
+    }
+
+    /**
+     * @return true if the camera exposure is adjusted based on the preview frames
+     */
+    public boolean isExposureControl() {
+        return exposureControl;
+    }
+
+    /**
+     * Drop preview frames much blurrier than the recent ones without decoding them, for example
+     * while the camera is focusing.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param sharpnessThreshold the fraction of the recent peak sharpness below which frames are
+     *                           dropped, between 0 and 1, for example 0.5. Default to 0, meaning
+     *                           frames are never dropped for being blurry.
+     * @see DecoderThread#setSharpnessThreshold(float)
+     * @see SourceData#getSharpness()
+     */
+    public void setSharpnessThreshold(float sharpnessThreshold) {
+        Util.validateMainThread();
+
+        if (sharpnessThreshold < 0 || sharpnessThreshold >= 1) {
+            throw new IllegalArgumentException("Sharpness threshold must be in [0, 1)");
+        }
+        this.sharpnessThreshold = sharpnessThreshold;
+    }
+
+    /**
+     * @return the fraction of the recent peak sharpness below which frames are dropped, or 0 if
+     * frames are never dropped for being blurry
+     */
+    public float getSharpnessThreshold() {
+        return sharpnessThreshold;
+    }
+
+    /**
+     * Drop preview frames that look the same as the last frame without a barcode, without
+     * decoding them, for example while the device sits on a desk between scans. Decoding resumes
+     * at full rate as soon as the scene changes.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param sceneChangeThreshold the mean luminance difference below which frames are dropped,
+     *                             between 0 and 255, for example 3. Default to 0, meaning frames
+     *                             are never dropped for being unchanged.
+     * @see DecoderThread#setSceneChangeThreshold(float)
+     * @see DecodeTimings.Outcome#UNCHANGED
+     * @see #getUnchangedFrameRatio()
+     */
+    public void setSceneChangeThreshold(float sceneChangeThreshold) {
+        Util.validateMainThread();
+
+        if (sceneChangeThreshold < 0 || sceneChangeThreshold > 255) {
+            throw new IllegalArgumentException("Scene change threshold must be between 0 and 255");
+        }
+        this.sceneChangeThreshold = sceneChangeThreshold;
+    }
+
+    /**
+     * @return the mean luminance difference below which frames are dropped as unchanged, or 0 if
+     * frames are never dropped for being unchanged
+     */
+    public float getSceneChangeThreshold() {
+        return sceneChangeThreshold;
+    }
+
+    /**
+     * The per-frame outcome is also reported to the DecoderMetrics, as UNCHANGED. Call this from
+     * UI thread only.
+     *
+     * @return the fraction of preview frames dropped for being unchanged since decoding started,
+     * or 0 if not decoding
+     * @see DecoderThread#getUnchangedFrameRatio()
+     */
+    public float getUnchangedFrameRatio() {
+        return decoderThread == null ? 0 : decoderThread.getUnchangedFrameRatio();
+    }
+
+    /**
+     * Set a listener notified when the fraction of skipped preview frames changes.
+     *
+     * @param frameSkipListener the listener, or null
+     * @see #setDecoderTargetDutyCycle(float)
+     */
+    public void setFrameSkipListener(FrameSkipListener frameSkipListener) {
+        this.frameSkipListener = frameSkipListener;
+    }
+
+    /**
+     * Set a listener receiving the timings of each stage of decoding, for every preview frame.
+     * <p>
+     * The listener is called on the decoder threads. Call this from UI thread only.
+     * <p>
+     * The outcome of each frame tells the frames skipped by the exposure, scene change and
+     * sharpness checks, and the latency of cancelled decodes is included.
+     *
+     * @param decoderMetrics the listener, or null
+     * @see DecoderMetrics
+     */
+    public void setDecoderMetrics(DecoderMetrics decoderMetrics) {
+        Util.validateMainThread();
+
+        this.decoderMetrics = decoderMetrics;
+        if (decoderThread != null) {
+            decoderThread.setDecoderMetrics(decoderMetrics);
+        }
+    }
+
+    /**
+     * @return the listener receiving the decoding timings, or null
+     */
+    public DecoderMetrics getDecoderMetrics() {
+        return decoderMetrics;
+    }
+
+    /**
+     * Call BarcodeCallback.possibleResultPoints() for every frame. This allocates a list of
+     * points per frame; prefer setResultPointBuffer() to draw the points.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param possibleResultPointsEnabled true to report the points. Default to false.
+     */
+    public void setPossibleResultPointsEnabled(boolean possibleResultPointsEnabled) {
+        Util.validateMainThread();
+
+        this.possibleResultPointsEnabled = possibleResultPointsEnabled;
+    }
+
+    /**
+     * @return true if BarcodeCallback.possibleResultPoints() is called for every frame
+     */
+    public boolean isPossibleResultPointsEnabled() {
+        return possibleResultPointsEnabled;
+    }
+
+    /**
+     * Add the possible ResultPoints of every frame to a buffer, relative to the preview framing
+     * rectangle, without allocating. Possible ResultPoints are only collected if this is set,
+     * or if setPossibleResultPointsEnabled() is true.
+     * <p>
+     * Takes effect the next time decoding starts. Call this from UI thread only.
+     *
+     * @param resultPointBuffer the buffer, or null. Default to null.
+     * @see ViewfinderView#getResultPointBuffer()
+     */
+    public void setResultPointBuffer(ResultPointBuffer resultPointBuffer) {
+        Util.validateMainThread();
+
+        this.resultPointBuffer = resultPointBuffer;
+    }
+
+    /**
+     * @return the buffer receiving the possible ResultPoints, or null
+     */
+    public ResultPointBuffer getResultPointBuffer() {
+        return resultPointBuffer;
+    }
+
+    /**
+     * Set a filter suppressing barcodes reported recently, when decoding continuously. Without
+     * it, a barcode is reported for every frame while it stays in view.
+     * <p>
+     * Call this from UI thread only.
+     *
+     * @param duplicateFilter the filter, for example new DuplicateResultFilter(16, 3000), or null
+     *                        to report every barcode (the default)
+     * @see #decodeContinuous(BarcodeCallback)
+     */
+    public void setDuplicateFilter(DuplicateResultFilter duplicateFilter) {
+        Util.validateMainThread();
+
+        this.duplicateFilter = duplicateFilter;
+    }
+
+    /**
+     * @return the filter suppressing recently reported barcodes, or null
+     */
+    public DuplicateResultFilter getDuplicateFilter() {
+        return duplicateFilter;
+    }
+
+    /**
+     * When decoding continuously, decode the region around the last barcode found first, and only
+     * decode the full framing rectangle if the barcode is not found there.
+     * <p>
+     * Call this from UI thread only. Takes effect the next time decoding starts.
+     *
+     * @param regionOfInterestTracking true to track the last barcode. Default to false.
+     * @see DecoderThread#setRegionOfInterestTracking(boolean)
+     */
+    public void setRegionOfInterestTracking(boolean regionOfInterestTracking) {
+        Util.validateMainThread();
+
+        this.regionOfInterestTracking = regionOfInterestTracking;
+    }
+
+    /**
+     * @return true if the region around the last barcode is decoded first
+     */
+    public boolean isRegionOfInterestTracking() {
+        return regionOfInterestTracking;
+    }
+
+    /**
+     * Set the margin added on each side of the last barcode to get the region of interest.
+     * <p>
+     * Call this from UI thread only. Takes effect the next time decoding starts.
+     *
+     * @param regionOfInterestMargin the margin as a fraction of the barcode size. Default to 0.5.
+     * @see DecoderThread#setRegionOfInterestMargin(float)
+     */
+    public void setRegionOfInterestMargin(float regionOfInterestMargin) {
+        Util.validateMainThread();
+
+        if (regionOfInterestMargin < 0) {
+            throw new IllegalArgumentException("Margin must not be negative");
+        }
+        this.regionOfInterestMargin = regionOfInterestMargin;
+    }
+
+    /**
+     * @return the margin around the last barcode, as a fraction of its size
+     */
+    public float getRegionOfInterestMargin() {
+        return regionOfInterestMargin;
+    }
+
+    /**
+     * Decode synthetic barcodes of each format on a background thread while the camera opens, so
+     * that the first preview frames decode at full speed.
+     * <p>
+     * Call this from UI thread only, before resume(). The warm-up is cancelled as soon as decoding
+     * starts, and runs again on the next resume() until it finishes once per BarcodeView.
+     *
+     * @param decoderWarmUp true to warm up the decoder. Default to false.
+     * @see DecoderWarmUp
+     * @see #getTimeToFirstResult()
+     */
+    public void setDecoderWarmUp(boolean decoderWarmUp) {
+        Util.validateMainThread();
+
+        this.decoderWarmUp = decoderWarmUp;
+    }
+
+    /**
+     * @return true if the decoder is warmed up while the camera opens
+     */
+    public boolean isDecoderWarmUp() {
+        return decoderWarmUp;
+    }
+
+    /**
+     * @return the warm-up, or null if it was never started
+     */
+    public DecoderWarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * The time from the decoder thread starting to the first barcode found, including the time
+     * taken to aim at the barcode. Compare it with and without warm-up on the same barcode.
+     *
+     * @return the time in milliseconds, or -1 if no barcode was found yet
+     */
+    public long getTimeToFirstResult() {
+        return timeToFirstResult;
+    }
+
+    private void startWarmUp() {
+        if (!decoderWarmUp || (warmUp != null && warmUp.isFinished())) {
+            return;
+        }
+        Collection<BarcodeFormat> formats = null;
+        if (decoderFactory instanceof DefaultDecoderFactory) {
+            formats = ((DefaultDecoderFactory) decoderFactory).getDecodeFormats();
+        }
+        // A throwaway decoder: the decoders used for scanning are created when decoding starts.
+        warmUp = new DecoderWarmUp(createDecoder(), formats);
+        Thread thread = new Thread(warmUp, "DecoderWarmUp");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private List<Decoder> createDecoders(int count) {
+        List<Decoder> decoders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            decoders.add(createDecoder());
         }
+        return decoders;
     }
 
     private Decoder createDecoder() {
         if (decoderFactory == null) {
             decoderFactory = createDefaultDecoderFactory();
         }
-        DecoderResultPointCallback callback = new DecoderResultPointCallback();
         Map<DecodeHintType, Object> hints = new HashMap<>();
+        if (!possibleResultPointsEnabled && resultPointBuffer == null) {
+            // Without the callback, the readers don't report possible ResultPoints at all.
+            return this.decoderFactory.createDecoder(hints);
+        }
+        DecoderResultPointCallback callback = new DecoderResultPointCallback();
         hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, callback);
         Decoder decoder = this.decoderFactory.createDecoder(hints);
         callback.setDecoder(decoder);
@@ -138,6 +646,9 @@ public class BarcodeView extends CameraPreview {
     /**
      * Decode a single barcode, then stop decoding.
      * <p>
+     * With a MultipleBarcodeDecoder, a MultipleBarcodeCallback receives all the barcodes of the
+     * first frame with any, and a plain BarcodeCallback only the first of them.
+     * <p>
      * The callback will only be called on the UI thread.
      *
      * @param callback called with the barcode result, as well as possible ResultPoints
@@ -149,7 +660,8 @@ public class BarcodeView extends CameraPreview {
     }
 
     /**
-     * Continuously decode barcodes. The same barcode may be returned multiple times per second.
+     * Continuously decode barcodes. The same barcode may be returned multiple times per second,
+     * unless a duplicate filter is set.
      * <p>
      * The callback will only be called on the UI thread.
      *
@@ -193,9 +705,28 @@ public class BarcodeView extends CameraPreview {
             // We only start the thread if both:
             // 1. decoding was requested
             // 2. the preview is active
-            decoderThread = new DecoderThread(getCameraInstance(), createDecoder(), resultHandler);
+            decoderThread = new DecoderThread(getCameraInstance(), createDecoders(decoderWorkerCount), resultHandler);
             decoderThread.setCropRect(getPreviewFramingRect());
+            decoderThread.setPipelineDepth(decoderPipelineDepth);
+            decoderThread.setMaxFrameAge(maxFrameAge);
+            decoderThread.setTargetDutyCycle(decoderTargetDutyCycle);
+            decoderThread.setExposureControl(exposureControl);
+            decoderThread.setSharpnessThreshold(sharpnessThreshold);
+            decoderThread.setSceneChangeThreshold(sceneChangeThreshold);
+            decoderThread.setDecoderMetrics(decoderMetrics);
+            decoderThread.setPossibleResultPointsEnabled(possibleResultPointsEnabled);
+            decoderThread.setResultPointBuffer(resultPointBuffer);
+            // A single scan has nothing to track.
+            decoderThread.setRegionOfInterestTracking(regionOfInterestTracking && decodeMode == DecodeMode.CONTINUOUS);
+            decoderThread.setRegionOfInterestMargin(regionOfInterestMargin);
             decoderThread.start();
+            if (warmUp != null) {
+                // The real decoders are running: stop competing with them for the first frames.
+                warmUp.cancel();
+            }
+            if (timeToFirstResult < 0) {
+                decodeStartTime = SystemClock.elapsedRealtime();
+            }
         }
     }
 
@@ -213,6 +744,18 @@ public class BarcodeView extends CameraPreview {
         }
     }
 
+    /**
+     * Starts the camera preview, and the decoder warm-up if enabled.
+     * <p>
+     * Call from the Activity's onResume() method.
+     */
+    @Override
+    public void resume() {
+        super.resume();
+
+        startWarmUp();
+    }
+
     /**
      * Stops the live preview and decoding.
      * <p>
@@ -221,6 +764,9 @@ public class BarcodeView extends CameraPreview {
     @Override
     public void pause() {
         stopDecoderThread();
+        if (warmUp != null) {
+            warmUp.cancel();
+        }
 
         super.pause();
     }
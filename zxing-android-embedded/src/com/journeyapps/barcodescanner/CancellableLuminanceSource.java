@@ -0,0 +1,63 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * A LuminanceSource checking a CancellationToken every time it is read.
+ *
+ * Binarizers read the source one row at a time, or as a whole matrix, and 1D readers read it
+ * row by row, so these are safe points to abort a decode that is no longer needed.
+ *
+ * @see CancellationToken
+ */
+final class CancellableLuminanceSource extends LuminanceSource {
+    private final LuminanceSource delegate;
+    private final CancellationToken token;
+
+    /**
+     * @param delegate the source to read
+     * @param token    the token to check
+     */
+    CancellableLuminanceSource(LuminanceSource delegate, CancellationToken token) {
+        super(delegate.getWidth(), delegate.getHeight());
+        this.delegate = delegate;
+        this.token = token;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        token.throwIfCancelled();
+        return delegate.getRow(y, row);
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        token.throwIfCancelled();
+        return delegate.getMatrix();
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return delegate.isCropSupported();
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new CancellableLuminanceSource(delegate.crop(left, top, width, height), token);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return delegate.isRotateSupported();
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new CancellableLuminanceSource(delegate.rotateCounterClockwise(), token);
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise45() {
+        return new CancellableLuminanceSource(delegate.rotateCounterClockwise45(), token);
+    }
+}
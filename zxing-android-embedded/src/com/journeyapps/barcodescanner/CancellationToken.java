@@ -0,0 +1,53 @@
+package com.journeyapps.barcodescanner;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * A flag to stop decoding a frame that is no longer needed, for example after the decoder is
+ * stopped or the crop rectangle changed.
+ *
+ * Cancellation is cooperative: the decoder checks the token between stages, and the luminance
+ * source checks it every time a row or the matrix is read, throwing a CancellationException.
+ * This bounds the time to abort to roughly the time of a single stage of the readers.
+ *
+ * Thread-safe.
+ *
+ * @see Decoder#setCancellationToken(CancellationToken)
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled = false;
+    private volatile long cancelTime = -1;
+
+    /**
+     * Cancel the work using this token. May be called from any thread.
+     */
+    public void cancel() {
+        if (!cancelled) {
+            cancelTime = System.nanoTime();
+            cancelled = true;
+        }
+    }
+
+    /**
+     * @return true if cancel() was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the time cancel() was first called, as System.nanoTime(), or -1 if not cancelled
+     */
+    public long getCancelTime() {
+        return cancelTime;
+    }
+
+    /**
+     * @throws CancellationException if cancel() was called
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Decode cancelled");
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.journeyapps.barcodescanner;
+
+/**
+ * Timings of the stages of decoding a single preview frame. All times are in nanoseconds.
+ *
+ * Each decoder worker reuses a single instance, so the values are only valid during
+ * DecoderMetrics.frameDecoded(). Copy them out to keep them.
+ *
+ * If a frame is decoded more than once, for example in a region of interest first, the times of
+ * each stage are added up.
+ *
+ * @see DecoderMetrics
+ */
+public final class DecodeTimings {
+    public enum Outcome {
+        /**
+         * The frame was older than the maximum frame age, and was not decoded.
+         */
+        EXPIRED,
+        /**
+         * The frame was much too dark or too bright, and was not decoded.
+         */
+        BADLY_EXPOSED,
+        /**
+         * The frame was too blurry, and was not decoded.
+         */
+        BLURRY,
+        /**
+         * The frame looked the same as the last frame without a barcode, and was not decoded.
+         */
+        UNCHANGED,
+        /**
+         * Decoding was cancelled by stopping the decoder, or changing the crop rectangle.
+         */
+        CANCELLED,
+        /**
+         * No crop rectangle was set yet, so there was nothing to decode.
+         */
+        NO_SOURCE,
+        /**
+         * No barcode was found.
+         */
+        NOT_FOUND,
+        /**
+         * A barcode was found and reported.
+         */
+        FOUND,
+        /**
+         * A barcode was found, but a result from a newer frame was already reported.
+         */
+        STALE
+    }
+
+    private int worker;
+    private long frameTimestamp;
+    private long waitTime;
+    private long checkTime;
+    private long sourceTime;
+    private long binarizeTime;
+    private long readTime;
+    private long totalTime;
+    private long cancellationLatency;
+    private Outcome outcome;
+
+    void reset(int worker, long frameTimestamp, long start) {
+        this.worker = worker;
+        this.frameTimestamp = frameTimestamp;
+        this.waitTime = start - frameTimestamp;
+        this.checkTime = 0;
+        this.sourceTime = 0;
+        this.binarizeTime = 0;
+        this.readTime = 0;
+        this.totalTime = 0;
+        this.cancellationLatency = 0;
+        this.outcome = null;
+    }
+
+    void addCheckTime(long checkTime) {
+        this.checkTime += checkTime;
+    }
+
+    void addSourceTime(long sourceTime) {
+        this.sourceTime += sourceTime;
+    }
+
+    void addBinarizeTime(long binarizeTime) {
+        this.binarizeTime += binarizeTime;
+    }
+
+    void addReadTime(long readTime) {
+        this.readTime += readTime;
+    }
+
+    void setCancellationLatency(long cancellationLatency) {
+        this.cancellationLatency = cancellationLatency;
+    }
+
+    void finish(Outcome outcome, long totalTime) {
+        this.outcome = outcome;
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * @return the index of the worker that decoded the frame
+     */
+    public int getWorker() {
+        return worker;
+    }
+
+    /**
+     * @return the time the frame was received, as System.nanoTime()
+     * @see SourceData#getTimestamp()
+     */
+    public long getFrameTimestamp() {
+        return frameTimestamp;
+    }
+
+    /**
+     * @return the time between receiving the frame and a worker picking it up
+     */
+    public long getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * The checks run before decoding, when enabled: measuring the exposure and the sharpness of the
+     * frame, and its change from the previous frames. They read the frame in camera orientation,
+     * without rotating it.
+     *
+     * @return the time taken by the checks before decoding, 0 if none are enabled
+     * @see DecoderThread#setExposureControl(boolean)
+     * @see DecoderThread#setSharpnessThreshold(float)
+     * @see DecoderThread#setSceneChangeThreshold(float)
+     */
+    public long getCheckTime() {
+        return checkTime;
+    }
+
+    /**
+     * The luminance source is created by rotating and cropping the preview data. This time is
+     * close to 0 when no copy is needed, for example with a rotation of 0.
+     *
+     * @return the time taken to rotate and crop the frame, and create the luminance source
+     */
+    public long getSourceTime() {
+        return sourceTime;
+    }
+
+    /**
+     * @return the time taken to create the binary bitmap with Decoder.toBitmap(), and binarize it
+     */
+    public long getBinarizeTime() {
+        return binarizeTime;
+    }
+
+    /**
+     * @return the time taken by the reader to decode the binary bitmap
+     */
+    public long getReadTime() {
+        return readTime;
+    }
+
+    /**
+     * @return the time taken by all the stages, plus reporting the result
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * @return for a CANCELLED frame, the time between cancelling the decode and the worker giving
+     * up on it, or 0 for other outcomes
+     */
+    public long getCancellationLatency() {
+        return cancellationLatency;
+    }
+
+    /**
+     * @return the outcome of decoding the frame
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+}
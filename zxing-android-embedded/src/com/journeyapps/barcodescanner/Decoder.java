@@ -1,8 +1,10 @@
 package com.journeyapps.barcodescanner;
 
+import com.google.zxing.Binarizer;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.LuminanceSource;
 import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
 import com.google.zxing.Reader;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
@@ -10,6 +12,7 @@ import com.google.zxing.ResultPointCallback;
 import com.google.zxing.common.HybridBinarizer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -22,6 +25,12 @@ import java.util.List;
 public class Decoder implements ResultPointCallback {
     private Reader reader;
 
+    private boolean decodeInSensorOrientation = false;
+
+    private boolean inverted = false;
+
+    private volatile CancellationToken cancellationToken;
+
     /**
      * Create a new Decoder with the specified Reader.
      *
@@ -37,10 +46,73 @@ public class Decoder implements ResultPointCallback {
         return reader;
     }
 
+    /**
+     * Default to false.
+     *
+     * If true, images are decoded in camera orientation instead of being rotated to display
+     * orientation first, and ResultPoints are translated to display orientation afterwards.
+     *
+     * Only enable this if all the formats decoded can be read in any orientation, such as
+     * QR Code, Data Matrix and Aztec.
+     *
+     * @return true if images are decoded in camera orientation
+     */
+    public boolean isDecodeInSensorOrientation() {
+        return decodeInSensorOrientation;
+    }
+
+    public void setDecodeInSensorOrientation(boolean decodeInSensorOrientation) {
+        this.decodeInSensorOrientation = decodeInSensorOrientation;
+    }
+
+    /**
+     * Default to false.
+     *
+     * @return true if the image is inverted before decoding, to read light barcodes on a dark
+     * background
+     */
+    public boolean isInverted() {
+        return inverted;
+    }
+
+    public void setInverted(boolean inverted) {
+        this.inverted = inverted;
+    }
+
+    /**
+     * @return the token checked while decoding, or null
+     */
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    /**
+     * Set a token to check between the stages of decoding, and every time a possible ResultPoint
+     * is found. Once cancelled, decoding stops with a CancellationException, or a null result.
+     *
+     * @param cancellationToken the token, or null to never stop early
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Call between stages of decoding.
+     *
+     * @throws java.util.concurrent.CancellationException if the cancellation token was cancelled
+     */
+    protected void checkCancelled() {
+        CancellationToken cancellationToken = this.cancellationToken;
+        if (cancellationToken != null) {
+            cancellationToken.throwIfCancelled();
+        }
+    }
+
     /**
      * Given an image source, attempt to decode the barcode.
      *
-     * Must not raise an exception.
+     * Must not raise an exception, other than a CancellationException once the cancellation
+     * token is cancelled.
      *
      * @param source the image source
      * @return a Result or null
@@ -50,15 +122,70 @@ public class Decoder implements ResultPointCallback {
     }
 
     /**
-     * Given an image source, convert to a binary bitmap.
+     * Given an image source, attempt to decode the barcode, and record the time taken to binarize
+     * the image and to read the barcode.
      *
-     * Override this to use a custom binarizer.
+     * The image is binarized before reading, instead of on demand. This may take a little longer
+     * if only 1D formats are decoded.
+     *
+     * Subclasses overriding decode(LuminanceSource) should override this as well.
+     *
+     * @param source  the image source
+     * @param timings the timings to record, or null to skip recording
+     * @return a Result or null
+     */
+    public Result decode(LuminanceSource source, DecodeTimings timings) {
+        if (timings == null) {
+            return decode(source);
+        }
+        long start = System.nanoTime();
+        BinaryBitmap bitmap = toBitmap(source);
+        if (!binarize(bitmap, start, timings)) {
+            return null;
+        }
+        checkCancelled();
+        long binarized = System.nanoTime();
+        Result result = decode(bitmap);
+        timings.addReadTime(System.nanoTime() - binarized);
+        return result;
+    }
+
+    /**
+     * Binarize a bitmap now instead of on demand, and record the time since start.
+     *
+     * @return false if the image cannot be binarized, so there is nothing to read
+     */
+    static boolean binarize(BinaryBitmap bitmap, long start, DecodeTimings timings) {
+        try {
+            // The binary bitmap caches the result, so the reader doesn't binarize again.
+            bitmap.getBlackMatrix();
+            return true;
+        } catch (NotFoundException e) {
+            return false;
+        } finally {
+            timings.addBinarizeTime(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Given an image source, convert to a binary bitmap, inverting the image first if inverted is
+     * set.
      *
      * @param source the image source
      * @return a BinaryBitmap
      */
     protected BinaryBitmap toBitmap(LuminanceSource source) {
-        return new BinaryBitmap(new HybridBinarizer(source));
+        return new BinaryBitmap(createBinarizer(inverted ? source.invert() : source));
+    }
+
+    /**
+     * Override this to use a custom binarizer.
+     *
+     * @param source the image source, already inverted if inverted is set
+     * @return a HybridBinarizer by default
+     */
+    protected Binarizer createBinarizer(LuminanceSource source) {
+        return new HybridBinarizer(source);
     }
 
     /**
@@ -68,7 +195,8 @@ public class Decoder implements ResultPointCallback {
      * @return a Result or null
      */
     protected Result decode(BinaryBitmap bitmap) {
-        possibleResultPoints.clear();
+        clearPossibleResultPoints();
+        checkCancelled();
         try {
             if (reader instanceof MultiFormatReader) {
                 // Optimization - MultiFormatReader's normal decode() method is slow.
@@ -84,7 +212,16 @@ public class Decoder implements ResultPointCallback {
         }
     }
 
-    private List<ResultPoint> possibleResultPoints = new ArrayList<>();
+    // x and y of each possible ResultPoint, grown as needed and reused for every decode.
+    private float[] possibleResultPoints = new float[32];
+    private int possibleResultPointCount = 0;
+
+    /**
+     * Call before decoding a bitmap.
+     */
+    protected void clearPossibleResultPoints() {
+        possibleResultPointCount = 0;
+    }
 
     /**
      * Call immediately after decode(), from the same thread.
@@ -92,13 +229,62 @@ public class Decoder implements ResultPointCallback {
      * The result is undefined while decode() is running.
      *
      * @return possible ResultPoints from the last decode.
+     * @see #getPossibleResultPointCount()
      */
     public List<ResultPoint> getPossibleResultPoints() {
-        return new ArrayList<>(possibleResultPoints);
+        List<ResultPoint> points = new ArrayList<>(possibleResultPointCount);
+        for (int i = 0; i < possibleResultPointCount; i++) {
+            points.add(new ResultPoint(possibleResultPoints[2 * i], possibleResultPoints[2 * i + 1]));
+        }
+        return points;
+    }
+
+    /**
+     * Call immediately after decode(), from the same thread. Use this with
+     * getPossibleResultPointX() and getPossibleResultPointY() to read the points without
+     * allocating.
+     *
+     * @return the number of possible ResultPoints from the last decode
+     */
+    public int getPossibleResultPointCount() {
+        return possibleResultPointCount;
+    }
+
+    /**
+     * @param index the index of the point, less than getPossibleResultPointCount()
+     * @return the x coordinate of the point
+     */
+    public float getPossibleResultPointX(int index) {
+        return possibleResultPoints[2 * index];
+    }
+
+    /**
+     * @param index the index of the point, less than getPossibleResultPointCount()
+     * @return the y coordinate of the point
+     */
+    public float getPossibleResultPointY(int index) {
+        return possibleResultPoints[2 * index + 1];
     }
 
     @Override
     public void foundPossibleResultPoint(ResultPoint point) {
-        possibleResultPoints.add(point);
+        // Called from within the readers, a safe point to abort.
+        checkCancelled();
+        addPossibleResultPoint(point.getX(), point.getY());
+    }
+
+    /**
+     * Record a possible ResultPoint. Override this to transform the points.
+     *
+     * @param x the x coordinate, in the image decoded
+     * @param y the y coordinate, in the image decoded
+     */
+    protected void addPossibleResultPoint(float x, float y) {
+        if (2 * possibleResultPointCount == possibleResultPoints.length) {
+            possibleResultPoints = Arrays.copyOf(possibleResultPoints, 2 * possibleResultPoints.length);
+        }
+        possibleResultPoints[2 * possibleResultPointCount] = x;
+        possibleResultPoints[2 * possibleResultPointCount + 1] = y;
+        possibleResultPointCount++;
     }
 }
@@ -5,7 +5,8 @@ import com.google.zxing.DecodeHintType;
 import java.util.Map;
 
 /**
- * Factory to create Decoder instances. Typically one instance will be created per DecoderThread.
+ * Factory to create Decoder instances. Typically one instance will be created per DecoderThread
+ * worker.
  *
  * @see DefaultDecoderFactory
  */
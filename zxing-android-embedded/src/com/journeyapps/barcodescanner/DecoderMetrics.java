@@ -0,0 +1,16 @@
+package com.journeyapps.barcodescanner;
+
+/**
+ * Receives the timings of every preview frame picked up by a decoder worker.
+ *
+ * Called on the decoder threads, right after each frame, so implementations must be thread-safe
+ * and fast. Avoid allocating here: this is called for every frame.
+ *
+ * @see BarcodeView#setDecoderMetrics(DecoderMetrics)
+ */
+public interface DecoderMetrics {
+    /**
+     * @param timings the timings and outcome of the frame. Only valid during this call.
+     */
+    void frameDecoded(DecodeTimings timings);
+}
@@ -5,60 +5,239 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Message;
-import android.util.Log;
 
 import com.google.zxing.LuminanceSource;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.client.android.R;
-import com.journeyapps.barcodescanner.camera.CameraInstance;
+import com.journeyapps.barcodescanner.camera.FrameSource;
 import com.journeyapps.barcodescanner.camera.PreviewCallback;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
+ * Decodes preview frames on one or more worker threads.
  *
+ * Each worker has its own Decoder, since Decoders are not thread-safe. A new preview frame is
+ * requested whenever a worker is idle, so with multiple workers several frames are decoded at
+ * the same time. Results are delivered in frame order: a result from a frame older than the last
+ * reported one is dropped.
+ *
+ * Frames are handed to the workers through a single-slot mailbox. A frame that arrives before the
+ * previous one was picked up replaces it, so the workers always decode the most recent frame.
+ *
+ * By default the camera is idle while all workers are busy. With a pipeline depth greater than 0,
+ * frames are captured ahead of the workers, so that capturing overlaps decoding.
+ *
+ * With a target duty cycle, the camera is never kept waiting. Instead, frames are skipped so that
+ * the workers are only busy for that fraction of the time.
+ *
+ * With exposure control, the camera exposure is adjusted to keep the crop rectangle well exposed,
+ * and frames much too dark or too bright are dropped without decoding.
+ *
+ * With a sharpness threshold, frames much blurrier than the recent ones, for example while the
+ * camera is focusing, are dropped without decoding.
+ *
+ * With a scene change threshold, frames that look the same as the last frame without a barcode,
+ * for example with the scanner idle on a desk, are dropped without decoding until the scene moves.
+ *
+ * Stopping or changing the crop rectangle cancels the frames being decoded. Decoders check for
+ * cancellation between stages and whenever they read the image, so stale work is aborted quickly.
+ *
+ * With region of interest tracking, a barcode found in a frame is looked for in a small region
+ * around its last position first, and only in the full crop rectangle when it is not found there.
  */
 public class DecoderThread {
     private static final String TAG = DecoderThread.class.getSimpleName();
 
-    private CameraInstance cameraInstance;
-    private HandlerThread thread;
-    private Handler handler;
-    private Decoder decoder;
+    /**
+     * The minimum margin around the region of interest, in pixels.
+     */
+    private static final int MIN_REGION_OF_INTEREST_MARGIN = 16;
+
+    /**
+     * A frame waiting in the mailbox, and the next one being captured.
+     */
+    private static final int MAX_PIPELINE_DEPTH = 2;
+
+    private FrameSource frameSource;
+    private DecodeWorker[] workers;
+    private volatile Decoder[] decoders;
     private Handler resultHandler;
-    private Rect cropRect;
-    private boolean running = false;
-    private final Object LOCK = new Object();
-    private boolean justPreview;
+    private volatile Rect cropRect;
+    private volatile boolean running = false;
+    private volatile boolean justPreview;
+    private volatile int pipelineDepth = 0;
+    private volatile long maxFrameAgeNanos = 0;
+    private float targetDutyCycle = 0;
+    private volatile FrameSkipper frameSkipper;
+    private boolean exposureControl = false;
+    private volatile ExposureController exposureController;
+    private float sharpnessThreshold = 0;
+    private volatile SharpnessFilter sharpnessFilter;
+    private float sceneChangeThreshold = 0;
+    private volatile SceneChangeDetector sceneChangeDetector;
+    private volatile DecoderMetrics metrics;
+    private volatile boolean regionOfInterestTracking = false;
+    private volatile float regionOfInterestMargin = 0.5f;
+    private volatile Rect regionOfInterest;
+    private volatile CancellationToken cancellation = new CancellationToken();
+    private volatile boolean possibleResultPointsEnabled = false;
+    private volatile ResultPointBuffer resultPointBuffer;
+
+    /**
+     * The latest frame not picked up by a worker yet.
+     */
+    private final AtomicReference<SourceData> mailbox = new AtomicReference<>();
+    private final AtomicBoolean previewRequested = new AtomicBoolean(false);
+    private final AtomicInteger idleWorkers = new AtomicInteger(0);
+    private final AtomicLong lastResultTimestamp = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicLong replacedFrames = new AtomicLong(0);
+    private final AtomicLong expiredFrames = new AtomicLong(0);
+    private final AtomicLong skippedFrames = new AtomicLong(0);
+    private final AtomicLong badlyExposedFrames = new AtomicLong(0);
+    private final AtomicLong blurryFrames = new AtomicLong(0);
+    private final AtomicLong unchangedFrames = new AtomicLong(0);
+    private final AtomicLong cancelledFrames = new AtomicLong(0);
+    private final AtomicLong totalCancellationLatency = new AtomicLong(0);
+    private final AtomicLong maxCancellationLatency = new AtomicLong(0);
+
+    /**
+     * A worker thread decoding one frame at a time.
+     */
+    private final class DecodeWorker implements Handler.Callback {
+        private final int index;
+        private final HandlerThread thread;
+        private final Handler handler;
+        private final DecodeTimings timings = new DecodeTimings();
+        private final int[] histogram = new int[ExposureController.HISTOGRAM_SIZE];
+        private final byte[] signature = new byte[SceneChangeDetector.SIGNATURE_LENGTH];
+        private final int[] signatureSums = new int[SceneChangeDetector.GRID_SIZE];
+        // Row buffers for the frame checks, grown to the largest crop rectangle.
+        private final byte[][] rows = new byte[3][0];
+
+        DecodeWorker(int index) {
+            this.index = index;
+            this.thread = new HandlerThread(TAG + "-" + index);
+            this.thread.start();
+            this.handler = new Handler(thread.getLooper(), this);
+        }
 
-    private final Handler.Callback callback = new Handler.Callback() {
         @Override
         public boolean handleMessage(Message message) {
             if (message.what == R.id.zxing_decode) {
-                decode((SourceData) message.obj);
+                SourceData sourceData;
+                while ((sourceData = mailbox.getAndSet(null)) != null) {
+                    idleWorkers.decrementAndGet();
+                    if (pipelineDepth > 0) {
+                        // The mailbox is free: capture the next frame while decoding this one.
+                        requestNextPreview();
+                    }
+                    decode(this, sourceData);
+                    idleWorkers.incrementAndGet();
+                }
+                requestNextPreview();
             } else if (message.what == R.id.zxing_preview_failed) {
                 // Error already logged. Try again.
                 requestNextPreview();
             }
             return true;
         }
-    };
 
-    public DecoderThread(CameraInstance cameraInstance, Decoder decoder, Handler resultHandler) {
+        /**
+         * @param index the index of the buffer, from 0 to 2
+         * @param rect  the crop rectangle, in any orientation
+         * @return a row buffer wide enough for the crop rectangle
+         */
+        byte[] row(int index, Rect rect) {
+            int width = Math.max(rect.width(), rect.height());
+            if (rows[index].length < width) {
+                rows[index] = new byte[width];
+            }
+            return rows[index];
+        }
+
+        /**
+         * Wake the worker up to check the mailbox, unless it will already do so.
+         */
+        void notifyFrame() {
+            if (!handler.hasMessages(R.id.zxing_decode)) {
+                handler.sendEmptyMessage(R.id.zxing_decode);
+            }
+        }
+    }
+
+    /**
+     * Create a DecoderThread with a single worker.
+     *
+     * @param frameSource    the camera or other source to request preview frames from
+     * @param decoder        the decoder
+     * @param resultHandler  handler receiving the results
+     */
+    public DecoderThread(FrameSource frameSource, Decoder decoder, Handler resultHandler) {
+        this(frameSource, Collections.singletonList(decoder), resultHandler);
+    }
+
+    /**
+     * Create a DecoderThread with one worker per decoder.
+     *
+     * @param frameSource    the camera or other source to request preview frames from
+     * @param decoders       the decoders. Each must be a separate instance.
+     * @param resultHandler  handler receiving the results
+     */
+    public DecoderThread(FrameSource frameSource, List<Decoder> decoders, Handler resultHandler) {
         Util.validateMainThread();
 
-        this.cameraInstance = cameraInstance;
-        this.decoder = decoder;
+        if (decoders.isEmpty()) {
+            throw new IllegalArgumentException("At least one decoder is required");
+        }
+        this.frameSource = frameSource;
+        this.decoders = decoders.toArray(new Decoder[decoders.size()]);
         this.resultHandler = resultHandler;
     }
 
+    /**
+     * @return the decoder of the first worker
+     */
     public Decoder getDecoder() {
-        return decoder;
+        return decoders[0];
     }
 
+    /**
+     * Set the decoder. Only valid with a single worker.
+     *
+     * @param decoder the new decoder
+     */
     public void setDecoder(Decoder decoder) {
-        this.decoder = decoder;
+        setDecoders(Collections.singletonList(decoder));
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    public int getWorkerCount() {
+        return decoders.length;
+    }
+
+    /**
+     * Set the decoders, one per worker.
+     *
+     * @param decoders the new decoders. There must be exactly one per worker.
+     */
+    public void setDecoders(List<Decoder> decoders) {
+        if (decoders.size() != this.decoders.length) {
+            throw new IllegalArgumentException("Expected " + this.decoders.length + " decoders, got " + decoders.size());
+        }
+        this.decoders = decoders.toArray(new Decoder[decoders.size()]);
     }
 
     public Rect getCropRect() {
@@ -66,13 +245,364 @@ public class DecoderThread {
     }
 
     public void setCropRect(Rect cropRect) {
+        // Before cancelling: a worker reading the new token must also read the new crop.
         this.cropRect = cropRect;
+        // The region of interest is relative to the old crop rectangle.
+        this.regionOfInterest = null;
+        cancelDecoding();
+        SceneChangeDetector sceneChangeDetector = this.sceneChangeDetector;
+        if (sceneChangeDetector != null) {
+            sceneChangeDetector.reset();
+        }
     }
 
     public void setJustPreview(boolean justPreview) {
         this.justPreview = justPreview;
     }
 
+    /**
+     * Default to 0.
+     *
+     * @return the maximum number of frames captured ahead of the workers
+     */
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * Set the maximum number of frames captured ahead of the workers.
+     *
+     * With 0, the next frame is only requested once a worker is idle, so capturing and decoding
+     * strictly alternate.
+     *
+     * With 1, the next frame is requested as soon as a worker picks up a frame, and waits in the
+     * mailbox until a worker is idle. Every frame captured is decoded.
+     *
+     * With 2, the next frame is also requested as soon as a frame arrives. A frame arriving while
+     * all workers are busy replaces the frame waiting in the mailbox, so the camera never waits,
+     * and the workers always get the most recent frame.
+     *
+     * When preview buffers are used, the depth plus the number of workers should be less than
+     * the number of buffers.
+     *
+     * @param pipelineDepth 0, 1 or 2
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        if (pipelineDepth < 0 || pipelineDepth > MAX_PIPELINE_DEPTH) {
+            throw new IllegalArgumentException("Pipeline depth must be between 0 and " + MAX_PIPELINE_DEPTH);
+        }
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * @return the maximum age of a frame in milliseconds, or 0 if there is no maximum
+     */
+    public long getMaxFrameAge() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFrameAgeNanos);
+    }
+
+    /**
+     * Set the maximum age of a frame when a worker picks it up. Older frames are dropped without
+     * decoding, since they no longer show what the camera sees.
+     *
+     * @param maxFrameAge the maximum age in milliseconds, or 0 for no maximum (the default)
+     * @see SourceData#getTimestamp()
+     */
+    public void setMaxFrameAge(long maxFrameAge) {
+        this.maxFrameAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxFrameAge);
+    }
+
+    /**
+     * @return the number of frames replaced in the mailbox by a newer frame before being decoded
+     */
+    public long getReplacedFrameCount() {
+        return replacedFrames.get();
+    }
+
+    /**
+     * @return the number of frames dropped for being older than the maximum frame age
+     */
+    public long getExpiredFrameCount() {
+        return expiredFrames.get();
+    }
+
+    /**
+     * @return the target fraction of time the workers are busy, or 0 if frames are never skipped
+     */
+    public float getTargetDutyCycle() {
+        return targetDutyCycle;
+    }
+
+    /**
+     * Skip frames so that the workers are busy for the given fraction of the time, based on
+     * moving averages of the decode time and the frame interval. This implies the maximum
+     * pipeline depth.
+     *
+     * Use this to limit CPU usage and heat on slow devices. Must be called before start().
+     *
+     * @param targetDutyCycle the fraction of time, between 0 and 1. Default to 0, meaning frames
+     *                        are never skipped.
+     * @see #getSkipRatio()
+     */
+    public void setTargetDutyCycle(float targetDutyCycle) {
+        if (targetDutyCycle < 0 || targetDutyCycle > 1) {
+            throw new IllegalArgumentException("Target duty cycle must be between 0 and 1");
+        }
+        this.targetDutyCycle = targetDutyCycle;
+    }
+
+    /**
+     * @return the fraction of frames currently skipped to hold the target duty cycle
+     */
+    public float getSkipRatio() {
+        FrameSkipper frameSkipper = this.frameSkipper;
+        return frameSkipper == null ? 0 : frameSkipper.getSkipRatio();
+    }
+
+    /**
+     * @return the number of frames skipped to hold the target duty cycle
+     */
+    public long getSkippedFrameCount() {
+        return skippedFrames.get();
+    }
+
+    /**
+     * Default to false.
+     *
+     * @return true if the camera exposure is adjusted based on the preview frames
+     */
+    public boolean isExposureControl() {
+        return exposureControl;
+    }
+
+    /**
+     * Adjust the camera exposure based on a luminance histogram of the crop rectangle, measured on
+     * every frame. When the frames are too dark or too bright for a few frames in a row, a
+     * R.id.zxing_exposure_adjustment message is sent to the result handler, with arg1 set to 1 to
+     * make the preview brighter, or -1 to make it darker. Frames much too dark or too bright to
+     * decode are dropped. Must be called before start().
+     *
+     * @param exposureControl true to adjust the exposure
+     * @see com.journeyapps.barcodescanner.camera.CameraInstance#adjustExposure(boolean)
+     */
+    public void setExposureControl(boolean exposureControl) {
+        this.exposureControl = exposureControl;
+    }
+
+    /**
+     * @return the number of frames dropped for being much too dark or too bright
+     */
+    public long getBadlyExposedFrameCount() {
+        return badlyExposedFrames.get();
+    }
+
+    /**
+     * @return the fraction of the recent peak sharpness below which frames are dropped, or 0 if
+     * frames are never dropped for being blurry
+     */
+    public float getSharpnessThreshold() {
+        return sharpnessThreshold;
+    }
+
+    /**
+     * Drop frames with a sharpness below a fraction of the recent peak sharpness, without decoding
+     * them. The peak decays slowly, and a few frames in a row are always decoded, so that the
+     * threshold follows changes of the scene. Must be called before start().
+     *
+     * @param sharpnessThreshold the fraction, between 0 and 1, for example 0.5. Default to 0,
+     *                           meaning frames are never dropped for being blurry.
+     * @see SourceData#getSharpness()
+     */
+    public void setSharpnessThreshold(float sharpnessThreshold) {
+        if (sharpnessThreshold < 0 || sharpnessThreshold >= 1) {
+            throw new IllegalArgumentException("Sharpness threshold must be in [0, 1)");
+        }
+        this.sharpnessThreshold = sharpnessThreshold;
+    }
+
+    /**
+     * @return the number of frames dropped for being blurry
+     */
+    public long getBlurryFrameCount() {
+        return blurryFrames.get();
+    }
+
+    /**
+     * @return the mean luminance difference below which frames are dropped as unchanged, or 0 if
+     * frames are never dropped for being unchanged
+     */
+    public float getSceneChangeThreshold() {
+        return sceneChangeThreshold;
+    }
+
+    /**
+     * Drop frames that look the same as the last frame without a barcode, without decoding them.
+     * Frames are compared on a 16 x 16 grid of average luminance. As soon as the scene changes,
+     * every frame is decoded again. Must be called before start().
+     *
+     * @param sceneChangeThreshold the mean absolute difference of the grids, in luminance levels
+     *                             between 0 and 255, for example 3. Default to 0, meaning frames
+     *                             are never dropped for being unchanged.
+     * @see #getUnchangedFrameRatio()
+     */
+    public void setSceneChangeThreshold(float sceneChangeThreshold) {
+        if (sceneChangeThreshold < 0 || sceneChangeThreshold > 255) {
+            throw new IllegalArgumentException("Scene change threshold must be between 0 and 255");
+        }
+        this.sceneChangeThreshold = sceneChangeThreshold;
+    }
+
+    /**
+     * @return the number of frames dropped for being unchanged
+     */
+    public long getUnchangedFrameCount() {
+        return unchangedFrames.get();
+    }
+
+    /**
+     * @return the fraction of frames picked up by the workers since start() that were dropped for
+     * being unchanged
+     */
+    public float getUnchangedFrameRatio() {
+        SceneChangeDetector sceneChangeDetector = this.sceneChangeDetector;
+        return sceneChangeDetector == null ? 0 : sceneChangeDetector.getSkipRatio();
+    }
+
+    /**
+     * @return the number of frames whose decoding was cancelled by stop() or setCropRect()
+     */
+    public long getCancelledFrameCount() {
+        return cancelledFrames.get();
+    }
+
+    /**
+     * @return the average time between cancelling a decode and the worker giving up on it, in
+     * nanoseconds, or 0 if no decode was cancelled
+     * @see DecodeTimings#getCancellationLatency()
+     */
+    public long getAverageCancellationLatency() {
+        long count = cancelledFrames.get();
+        return count == 0 ? 0 : totalCancellationLatency.get() / count;
+    }
+
+    /**
+     * @return the longest time between cancelling a decode and the worker giving up on it, in
+     * nanoseconds
+     */
+    public long getMaxCancellationLatency() {
+        return maxCancellationLatency.get();
+    }
+
+    /**
+     * Default to false.
+     *
+     * @return true if the possible ResultPoints of every frame are sent to the result handler
+     */
+    public boolean isPossibleResultPointsEnabled() {
+        return possibleResultPointsEnabled;
+    }
+
+    /**
+     * Send the possible ResultPoints of every frame to the result handler, as a list in a
+     * R.id.zxing_possible_result_points message. This allocates for every frame; prefer
+     * setResultPointBuffer() to draw the points.
+     *
+     * @param possibleResultPointsEnabled true to send the points
+     */
+    public void setPossibleResultPointsEnabled(boolean possibleResultPointsEnabled) {
+        this.possibleResultPointsEnabled = possibleResultPointsEnabled;
+    }
+
+    /**
+     * @return the buffer receiving the possible ResultPoints, or null
+     */
+    public ResultPointBuffer getResultPointBuffer() {
+        return resultPointBuffer;
+    }
+
+    /**
+     * Add the possible ResultPoints of every frame to a buffer, relative to the crop rectangle in
+     * display orientation, without allocating.
+     *
+     * The decoders only report possible ResultPoints if created with a
+     * DecodeHintType.NEED_RESULT_POINT_CALLBACK hint.
+     *
+     * @param resultPointBuffer the buffer, or null
+     * @see ViewfinderView#getResultPointBuffer()
+     */
+    public void setResultPointBuffer(ResultPointBuffer resultPointBuffer) {
+        this.resultPointBuffer = resultPointBuffer;
+    }
+
+    /**
+     * @return the listener receiving the timings of every frame, or null
+     */
+    public DecoderMetrics getDecoderMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set a listener receiving the timings of every frame picked up by a worker. It is called on
+     * the worker threads.
+     *
+     * @param metrics the listener, or null to stop recording timings
+     */
+    public void setDecoderMetrics(DecoderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Default to false.
+     *
+     * @return true if the region around the last barcode found is decoded first
+     */
+    public boolean isRegionOfInterestTracking() {
+        return regionOfInterestTracking;
+    }
+
+    /**
+     * After a barcode is found, decode the region around it first in the next frames, and only
+     * decode the full crop rectangle if the barcode is not found there. This speeds up continuous
+     * scanning of a barcode that stays in view.
+     *
+     * Not supported for a MultipleBarcodeDecoder, which always decodes the full crop rectangle.
+     *
+     * @param regionOfInterestTracking true to track the region of the last barcode
+     */
+    public void setRegionOfInterestTracking(boolean regionOfInterestTracking) {
+        this.regionOfInterestTracking = regionOfInterestTracking;
+        if (!regionOfInterestTracking) {
+            this.regionOfInterest = null;
+        }
+    }
+
+    /**
+     * @return the margin added on each side of the last barcode, as a fraction of its size
+     */
+    public float getRegionOfInterestMargin() {
+        return regionOfInterestMargin;
+    }
+
+    /**
+     * Set the margin added on each side of the last barcode to get the region of interest. A
+     * larger margin allows more movement between frames, at the cost of a larger region.
+     *
+     * @param regionOfInterestMargin the margin as a fraction of the barcode size. Default to 0.5.
+     */
+    public void setRegionOfInterestMargin(float regionOfInterestMargin) {
+        if (regionOfInterestMargin < 0) {
+            throw new IllegalArgumentException("Margin must not be negative");
+        }
+        this.regionOfInterestMargin = regionOfInterestMargin;
+    }
+
+    /**
+     * @return the current region of interest in preview coordinates, or null if there is none
+     */
+    public Rect getRegionOfInterest() {
+        return regionOfInterest;
+    }
+
     /**
      * Start decoding.
      * <p>
@@ -81,9 +611,16 @@ public class DecoderThread {
     public void start() {
         Util.validateMainThread();
 
-        thread = new HandlerThread(TAG);
-        thread.start();
-        handler = new Handler(thread.getLooper(), callback);
+        workers = new DecodeWorker[decoders.length];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new DecodeWorker(i);
+        }
+        idleWorkers.set(workers.length);
+        regionOfInterest = null;
+        frameSkipper = targetDutyCycle > 0 ? new FrameSkipper(workers.length, targetDutyCycle) : null;
+        exposureController = exposureControl ? new ExposureController() : null;
+        sharpnessFilter = sharpnessThreshold > 0 ? new SharpnessFilter(sharpnessThreshold) : null;
+        sceneChangeDetector = sceneChangeThreshold > 0 ? new SceneChangeDetector(sceneChangeThreshold) : null;
         running = true;
         requestNextPreview();
     }
@@ -96,70 +633,422 @@ public class DecoderThread {
     public void stop() {
         Util.validateMainThread();
 
-        synchronized (LOCK) {
-            running = false;
-            handler.removeCallbacksAndMessages(null);
-            thread.quit();
+        running = false;
+        cancelDecoding();
+        releaseMailbox();
+        for (final DecodeWorker worker : workers) {
+            worker.handler.removeCallbacksAndMessages(null);
+            worker.handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    worker.thread.quit();
+                }
+            });
+        }
+    }
+
+    /**
+     * Cancel the frames being decoded. Frames picked up afterwards use a new token.
+     */
+    private void cancelDecoding() {
+        CancellationToken previous = cancellation;
+        cancellation = new CancellationToken();
+        previous.cancel();
+    }
+
+    /**
+     * @return the time between cancelling and the worker giving up, in nanoseconds
+     */
+    private long cancelled(CancellationToken cancellation) {
+        long latency = Math.max(0, System.nanoTime() - cancellation.getCancelTime());
+        totalCancellationLatency.addAndGet(latency);
+        cancelledFrames.incrementAndGet();
+        while (true) {
+            long max = maxCancellationLatency.get();
+            if (latency <= max || maxCancellationLatency.compareAndSet(max, latency)) {
+                return latency;
+            }
+        }
+    }
+
+    private void releaseMailbox() {
+        SourceData sourceData = mailbox.getAndSet(null);
+        if (sourceData != null) {
+            sourceData.releaseBuffer();
         }
     }
 
     private final PreviewCallback previewCallback = new PreviewCallback() {
         @Override
         public void onPreview(SourceData sourceData) {
-            if (!justPreview) {
-                // Only post if running, to prevent a warning like this:
-                //   java.lang.RuntimeException: Handler (android.os.Handler) sending message to a Handler on a dead thread
-
-                // synchronize to handle cases where this is called concurrently with stop()
-                synchronized (LOCK) {
-                    if (running) {
-                        // Post to our thread.
-                        handler.obtainMessage(R.id.zxing_decode, sourceData).sendToTarget();
-                    }
+            previewRequested.set(false);
+            if (justPreview || !running) {
+                sourceData.releaseBuffer();
+                return;
+            }
+
+            FrameSkipper frameSkipper = DecoderThread.this.frameSkipper;
+            if (frameSkipper != null) {
+                // Keep the camera going, and skip frames instead.
+                requestNextPreview();
+                if (!frameSkipper.shouldDecode(sourceData.getTimestamp())) {
+                    skippedFrames.incrementAndGet();
+                    sourceData.releaseBuffer();
+                    return;
                 }
             }
+
+            SourceData replaced = mailbox.getAndSet(sourceData);
+            if (replaced != null) {
+                replacedFrames.incrementAndGet();
+                replaced.releaseBuffer();
+            }
+
+            if (!running) {
+                // stop() was called concurrently, and may have missed this frame.
+                releaseMailbox();
+                return;
+            }
+
+            // There is a small chance of posting to a worker that was just stopped. This only
+            // causes a warning like this:
+            //   java.lang.RuntimeException: Handler (android.os.Handler) sending message to a Handler on a dead thread
+            for (DecodeWorker worker : workers) {
+                worker.notifyFrame();
+            }
+
+            // This frame will keep one idle worker busy. Keep the others busy too, or fill the
+            // pipeline.
+            if (pipelineDepth == MAX_PIPELINE_DEPTH || idleWorkers.get() > 1) {
+                requestNextPreview();
+            }
         }
 
         @Override
         public void onPreviewError(Exception e) {
-            synchronized (LOCK) {
-                if (running) {
-                    // Post to our thread.
-                    handler.obtainMessage(R.id.zxing_preview_failed).sendToTarget();
-                }
+            previewRequested.set(false);
+            if (running) {
+                // Post to a worker thread.
+                workers[0].handler.obtainMessage(R.id.zxing_preview_failed).sendToTarget();
             }
         }
     };
 
+    /**
+     * Request a preview frame, unless one is requested already.
+     */
     private void requestNextPreview() {
-        if (cameraInstance.isOpen()) {
-            cameraInstance.requestPreview(previewCallback);
+        if (running && frameSource.isOpen() && previewRequested.compareAndSet(false, true)) {
+            frameSource.requestPreview(previewCallback);
         }
     }
 
+    /**
+     * Create the source for a decoder decoding in display orientation.
+     *
+     * @param sourceData the frame, with its crop rectangle set
+     * @return the source, or null if there is nothing to decode
+     */
     protected LuminanceSource createSource(SourceData sourceData) {
-        if (this.cropRect == null) {
+        if (sourceData.getCropRect() == null) {
             return null;
         } else {
             return sourceData.createSource();
         }
     }
 
-    private void decode(SourceData sourceData) {
-        long start = System.currentTimeMillis();
+    /**
+     * @param sensorOrientation true if the worker's decoder decodes in camera orientation
+     */
+    private LuminanceSource createSource(SourceData sourceData, boolean sensorOrientation, DecodeTimings timings) {
+        long start = timings == null ? 0 : System.nanoTime();
+        LuminanceSource source;
+        if (!sensorOrientation) {
+            source = createSource(sourceData);
+        } else if (sourceData.getCropRect() == null) {
+            source = null;
+        } else {
+            source = sourceData.createSensorSource();
+        }
+        if (timings != null) {
+            timings.addSourceTime(System.nanoTime() - start);
+        }
+        return source;
+    }
+
+    /**
+     * Translate a ResultPoint found in the source to display orientation, relative to the crop
+     * rectangle.
+     *
+     * @param sensorOrientation true if the source was in camera orientation
+     * @param dx                left of the decoded region, relative to the crop rectangle
+     * @param dy                top of the decoded region, relative to the crop rectangle
+     */
+    private static ResultPoint translatePoint(ResultPoint point, SourceData sourceData, boolean sensorOrientation, int dx, int dy) {
+        if (sensorOrientation) {
+            point = sourceData.translateResultPoint(point);
+        }
+        if (dx != 0 || dy != 0) {
+            point = new ResultPoint(point.getX() + dx, point.getY() + dy);
+        }
+        return point;
+    }
+
+    private static Result translateResult(Result result, SourceData sourceData, boolean sensorOrientation, int dx, int dy) {
+        if (!sensorOrientation && dx == 0 && dy == 0) {
+            return result;
+        }
+        ResultPoint[] points = result.getResultPoints();
+        ResultPoint[] translated = null;
+        if (points != null) {
+            translated = new ResultPoint[points.length];
+            for (int i = 0; i < points.length; i++) {
+                if (points[i] != null) {
+                    translated[i] = translatePoint(points[i], sourceData, sensorOrientation, dx, dy);
+                }
+            }
+        }
+        Result translatedResult = new Result(result.getText(), result.getRawBytes(), result.getNumBits(),
+                translated, result.getBarcodeFormat(), result.getTimestamp());
+        translatedResult.putAllMetadata(result.getResultMetadata());
+        return translatedResult;
+    }
+
+    private static List<Result> translateResults(List<Result> results, SourceData sourceData, boolean sensorOrientation) {
+        if (!sensorOrientation) {
+            return results;
+        }
+        List<Result> translated = new ArrayList<>(results.size());
+        for (Result result : results) {
+            translated.add(translateResult(result, sourceData, true, 0, 0));
+        }
+        return translated;
+    }
+
+    private static List<ResultPoint> translatePoints(List<ResultPoint> points, SourceData sourceData, boolean sensorOrientation, int dx, int dy) {
+        if (sensorOrientation || dx != 0 || dy != 0) {
+            for (int i = 0; i < points.size(); i++) {
+                points.set(i, translatePoint(points.get(i), sourceData, sensorOrientation, dx, dy));
+            }
+        }
+        return points;
+    }
+
+    private static void addResultPoints(ResultPointBuffer buffer, Decoder decoder, SourceData sourceData, boolean sensorOrientation, int dx, int dy) {
+        int count = decoder.getPossibleResultPointCount();
+        if (count == 0) {
+            return;
+        }
+        int rotation = sensorOrientation ? sourceData.getRotation() : 0;
+        Rect cropRect = sourceData.getCropRect();
+        for (int i = 0; i < count; i++) {
+            float x = decoder.getPossibleResultPointX(i);
+            float y = decoder.getPossibleResultPointY(i);
+            buffer.add(SourceData.translateX(rotation, cropRect.width(), x, y) + dx,
+                    SourceData.translateY(rotation, cropRect.height(), x, y) + dy);
+        }
+    }
+
+    private Rect regionOfInterest(Result result, Rect cropRect) {
+        int[] region = regionOfInterest(result.getResultPoints(), cropRect.width(), cropRect.height(), regionOfInterestMargin);
+        if (region == null) {
+            return null;
+        }
+        return new Rect(cropRect.left + region[0], cropRect.top + region[1],
+                cropRect.left + region[2], cropRect.top + region[3]);
+    }
+
+    /**
+     * The region around a barcode, to decode first in the next frames.
+     *
+     * @param points     the ResultPoints of the barcode, relative to the crop rectangle
+     * @param cropWidth  width of the crop rectangle
+     * @param cropHeight height of the crop rectangle
+     * @param margin     the margin added on each side, as a fraction of the barcode size
+     * @return {left, top, right, bottom} relative to the crop rectangle, or null if the region
+     * would cover more than half of the crop rectangle
+     */
+    static int[] regionOfInterest(ResultPoint[] points, int cropWidth, int cropHeight, float margin) {
+        if (points == null) {
+            return null;
+        }
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        int count = 0;
+        for (ResultPoint point : points) {
+            if (point != null) {
+                minX = Math.min(minX, point.getX());
+                minY = Math.min(minY, point.getY());
+                maxX = Math.max(maxX, point.getX());
+                maxY = Math.max(maxY, point.getY());
+                count++;
+            }
+        }
+        if (count < 2) {
+            return null;
+        }
+
+        // The points of 1D barcodes are on a line, so use the larger side in both directions.
+        float size = Math.max(maxX - minX, maxY - minY);
+        float extra = Math.max(margin * size, MIN_REGION_OF_INTEREST_MARGIN);
+        int left = Math.max(0, (int) (minX - extra));
+        int top = Math.max(0, (int) (minY - extra));
+        int right = Math.min(cropWidth, (int) Math.ceil(maxX + extra));
+        int bottom = Math.min(cropHeight, (int) Math.ceil(maxY + extra));
+
+        if (right <= left || bottom <= top || 2L * (right - left) * (bottom - top) > (long) cropWidth * cropHeight) {
+            return null;
+        }
+        return new int[]{left, top, right, bottom};
+    }
+
+    private void decode(DecodeWorker worker, SourceData sourceData) {
+        if (!running) {
+            sourceData.releaseBuffer();
+            return;
+        }
+        DecoderMetrics metrics = this.metrics;
+        DecodeTimings timings = metrics == null ? null : worker.timings;
+        long start = System.nanoTime();
+        if (timings != null) {
+            timings.reset(worker.index, sourceData.getTimestamp(), start);
+        }
+
+        long maxFrameAgeNanos = this.maxFrameAgeNanos;
+        if (maxFrameAgeNanos > 0 && start - sourceData.getTimestamp() > maxFrameAgeNanos) {
+            expiredFrames.incrementAndGet();
+            skipFrame(sourceData, DecodeTimings.Outcome.EXPIRED, timings, metrics, start);
+            return;
+        }
+        Decoder decoder = decoders[worker.index];
+
+        // The token before the crop rectangle, which setCropRect() writes before cancelling. A
+        // token read after a crop change is always read with the new crop rectangle.
+        CancellationToken cancellation = this.cancellation;
+        Rect cropRect = this.cropRect;
+        SceneChangeDetector sceneChangeDetector = cropRect == null ? null : this.sceneChangeDetector;
+        if (cropRect != null) {
+            sourceData.setCropRect(cropRect);
+            long checkStart = System.nanoTime();
+            DecodeTimings.Outcome skipped = checkFrame(worker, sourceData, sceneChangeDetector);
+            if (timings != null) {
+                timings.addCheckTime(System.nanoTime() - checkStart);
+            }
+            if (skipped != null) {
+                skipFrame(sourceData, skipped, timings, metrics, start);
+                return;
+            }
+        }
+
+        Rect regionOfInterest = this.regionOfInterest;
+        boolean sensorOrientation = decoder.isDecodeInSensorOrientation();
+        boolean multiple = decoder instanceof MultipleBarcodeDecoder;
+
         Result rawResult = null;
+        List<Result> rawResults = null;
+        List<ResultPoint> resultPoints = null;
+        boolean hasSource = false;
+
+        decoder.setCancellationToken(cancellation);
+        boolean sendResultPoints = possibleResultPointsEnabled && resultHandler != null;
+        ResultPointBuffer resultPointBuffer = this.resultPointBuffer;
+        try {
+            if (regionOfInterest != null && cropRect != null && !multiple) {
+                // Try around the last barcode first.
+                sourceData.setCropRect(regionOfInterest);
+                LuminanceSource source = createSource(sourceData, sensorOrientation, timings);
+                if (source != null) {
+                    hasSource = true;
+                    source = new CancellableLuminanceSource(source, cancellation);
+                    int dx = regionOfInterest.left - cropRect.left;
+                    int dy = regionOfInterest.top - cropRect.top;
+                    rawResult = decoder.decode(source, timings);
+                    if (sendResultPoints) {
+                        resultPoints = translatePoints(decoder.getPossibleResultPoints(), sourceData, sensorOrientation, dx, dy);
+                    }
+                    if (resultPointBuffer != null) {
+                        addResultPoints(resultPointBuffer, decoder, sourceData, sensorOrientation, dx, dy);
+                    }
+                    if (rawResult != null) {
+                        rawResult = translateResult(rawResult, sourceData, sensorOrientation, dx, dy);
+                    } else if (this.regionOfInterest == regionOfInterest) {
+                        // Lost the barcode. Not atomic: at worst, a newer region is dropped too.
+                        this.regionOfInterest = null;
+                    }
+                }
+            }
+
+            if (rawResult == null) {
+                cancellation.throwIfCancelled();
+                sourceData.setCropRect(cropRect);
+                LuminanceSource source = createSource(sourceData, sensorOrientation, timings);
+                if (source != null) {
+                    hasSource = true;
+                    source = new CancellableLuminanceSource(source, cancellation);
+                    if (multiple) {
+                        rawResults = ((MultipleBarcodeDecoder) decoder).decodeMultiple(source, timings);
+                        rawResults = translateResults(rawResults, sourceData, sensorOrientation);
+                        if (!rawResults.isEmpty()) {
+                            rawResult = rawResults.get(0);
+                        }
+                    } else {
+                        rawResult = decoder.decode(source, timings);
+                        if (rawResult != null) {
+                            rawResult = translateResult(rawResult, sourceData, sensorOrientation, 0, 0);
+                        }
+                    }
+                    if (sendResultPoints) {
+                        resultPoints = translatePoints(decoder.getPossibleResultPoints(), sourceData, sensorOrientation, 0, 0);
+                    }
+                    if (resultPointBuffer != null) {
+                        addResultPoints(resultPointBuffer, decoder, sourceData, sensorOrientation, 0, 0);
+                    }
+                }
+            }
+        } catch (CancellationException e) {
+            // Handled below.
+        }
+
+        if (cancellation.isCancelled()) {
+            // Stopped, or the crop rectangle changed: the result would be stale.
+            long latency = cancelled(cancellation);
+            if (timings != null) {
+                timings.setCancellationLatency(latency);
+            }
+            skipFrame(sourceData, DecodeTimings.Outcome.CANCELLED, timings, metrics, start);
+            return;
+        }
+        // The results are relative to the crop rectangle.
         sourceData.setCropRect(cropRect);
-        LuminanceSource source = createSource(sourceData);
 
-        if (source != null) {
-            rawResult = decoder.decode(source);
+        // Another worker may already have reported a result from a newer frame.
+        boolean reported = rawResult != null && markReported(sourceData.getTimestamp());
+
+        if (sceneChangeDetector != null) {
+            sceneChangeDetector.decoded(worker.signature, rawResult != null);
         }
 
-        if (rawResult != null) {
-            // Don't log the barcode contents for security.
-            long end = System.currentTimeMillis();
-            Log.d(TAG, "Found barcode in " + (end - start) + " ms");
-            if (resultHandler != null) {
+        if (reported && regionOfInterestTracking && !multiple) {
+            this.regionOfInterest = regionOfInterest(rawResult, cropRect);
+        }
+
+        if (reported) {
+            // The BarcodeResult keeps the data. Copy only the crop rectangle, so that the preview
+            // buffer goes back to the camera instead of a new full frame being allocated.
+            SourceData resultData = sourceData.copyCropRect();
+            sourceData.releaseBuffer();
+            sourceData = resultData;
+            if (resultHandler != null && rawResults != null) {
+                // All the results of the frame share its data.
+                List<BarcodeResult> barcodeResults = new ArrayList<>(rawResults.size());
+                for (Result result : rawResults) {
+                    barcodeResults.add(new BarcodeResult(result, sourceData));
+                }
+                Message message = Message.obtain(resultHandler, R.id.zxing_decode_multiple_succeeded, barcodeResults);
+                message.sendToTarget();
+            } else if (resultHandler != null) {
                 BarcodeResult barcodeResult = new BarcodeResult(rawResult, sourceData);
                 Message message = Message.obtain(resultHandler, R.id.zxing_decode_succeeded, barcodeResult);
                 Bundle bundle = new Bundle();
@@ -167,16 +1056,120 @@ public class DecoderThread {
                 message.sendToTarget();
             }
         } else {
+            sourceData.releaseBuffer();
             if (resultHandler != null) {
                 Message message = Message.obtain(resultHandler, R.id.zxing_decode_failed);
                 message.sendToTarget();
             }
         }
-        if (resultHandler != null) {
-            List<ResultPoint> resultPoints = decoder.getPossibleResultPoints();
+        if (sendResultPoints) {
+            if (resultPoints == null) {
+                resultPoints = decoder.getPossibleResultPoints();
+            }
             Message message = Message.obtain(resultHandler, R.id.zxing_possible_result_points, resultPoints);
             message.sendToTarget();
         }
-        requestNextPreview();
+
+        long end = System.nanoTime();
+        FrameSkipper frameSkipper = this.frameSkipper;
+        if (frameSkipper != null && frameSkipper.decoded(end - start) && resultHandler != null) {
+            Message message = Message.obtain(resultHandler, R.id.zxing_frame_skip_ratio, frameSkipper.getSkipRatio());
+            message.sendToTarget();
+        }
+
+        if (timings != null) {
+            DecodeTimings.Outcome outcome;
+            if (!hasSource) {
+                outcome = DecodeTimings.Outcome.NO_SOURCE;
+            } else if (rawResult == null) {
+                outcome = DecodeTimings.Outcome.NOT_FOUND;
+            } else if (reported) {
+                outcome = DecodeTimings.Outcome.FOUND;
+            } else {
+                outcome = DecodeTimings.Outcome.STALE;
+            }
+            timings.finish(outcome, end - start);
+            metrics.frameDecoded(timings);
+        }
+    }
+
+    /**
+     * Run the enabled checks on a frame before decoding it: exposure, scene change, then sharpness.
+     * A frame failing a check is counted, and the later checks are not run.
+     *
+     * @param sourceData          the frame, with the crop rectangle set
+     * @param sceneChangeDetector the scene change detector, or null
+     * @return the outcome if the frame should be skipped, or null to decode it
+     */
+    private DecodeTimings.Outcome checkFrame(DecodeWorker worker, SourceData sourceData, SceneChangeDetector sceneChangeDetector) {
+        ExposureController exposureController = this.exposureController;
+        SharpnessFilter sharpnessFilter = this.sharpnessFilter;
+        if (exposureController == null && sceneChangeDetector == null && sharpnessFilter == null) {
+            return null;
+        }
+        Rect cropRect = sourceData.getCropRect();
+        // None of the checks depend on the orientation, so skip rotating.
+        LuminanceSource source = sourceData.createSensorSource();
+
+        if (exposureController != null) {
+            // Before the scene change check, so that an unchanged dark scene is still adjusted.
+            ExposureController.Exposure exposure = ExposureController.measure(source, worker.histogram, worker.row(0, cropRect));
+            int adjustment = exposureController.adjustment(exposure, sourceData.getTimestamp());
+            if (adjustment != 0 && resultHandler != null) {
+                Message message = Message.obtain(resultHandler, R.id.zxing_exposure_adjustment, adjustment, 0);
+                message.sendToTarget();
+            }
+            if (!exposureController.shouldDecode(exposure)) {
+                badlyExposedFrames.incrementAndGet();
+                return DecodeTimings.Outcome.BADLY_EXPOSED;
+            }
+        }
+
+        if (sceneChangeDetector != null) {
+            SceneChangeDetector.signature(source, worker.signature, worker.row(0, cropRect), worker.signatureSums);
+            if (!sceneChangeDetector.shouldDecode(worker.signature)) {
+                unchangedFrames.incrementAndGet();
+                return DecodeTimings.Outcome.UNCHANGED;
+            }
+        }
+
+        if (sharpnessFilter != null) {
+            float sharpness = SourceData.sharpness(source, worker.row(0, cropRect), worker.row(1, cropRect), worker.row(2, cropRect));
+            // Kept for SourceData.getSharpness(), and copied to the result.
+            sourceData.setSharpness(sharpness);
+            if (!sharpnessFilter.shouldDecode(sharpness)) {
+                blurryFrames.incrementAndGet();
+                return DecodeTimings.Outcome.BLURRY;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Release a frame that is not decoded, or whose decoding was cancelled, and report it.
+     */
+    private static void skipFrame(SourceData sourceData, DecodeTimings.Outcome outcome, DecodeTimings timings,
+                                  DecoderMetrics metrics, long start) {
+        sourceData.releaseBuffer();
+        if (timings != null) {
+            timings.finish(outcome, System.nanoTime() - start);
+            metrics.frameDecoded(timings);
+        }
+    }
+
+    /**
+     * @param timestamp the timestamp of the frame with a result
+     * @return true if no result from a newer frame was reported yet
+     */
+    private boolean markReported(long timestamp) {
+        while (true) {
+            long last = lastResultTimestamp.get();
+            if (timestamp <= last) {
+                return false;
+            }
+            if (lastResultTimestamp.compareAndSet(last, timestamp)) {
+                return true;
+            }
+        }
     }
 }
@@ -0,0 +1,198 @@
+package com.journeyapps.barcodescanner;
+
+import android.util.Log;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes synthetic barcodes, to load the classes and warm up the JIT before the first preview
+ * frame arrives.
+ *
+ * The first decode is typically several times slower than the next ones. Class loading and JIT
+ * state are shared by the whole process, so a throwaway decoder from the same DecoderFactory warms
+ * up the decoders used for scanning.
+ *
+ * Run it on a background thread, for example while the camera is opening.
+ *
+ * @see BarcodeView#setDecoderWarmUp(boolean)
+ */
+public class DecoderWarmUp implements Runnable {
+    private static final String TAG = DecoderWarmUp.class.getSimpleName();
+
+    /**
+     * The contents of a barcode for each format that can be encoded.
+     */
+    private static final Map<BarcodeFormat, String> SAMPLES = new EnumMap<>(BarcodeFormat.class);
+
+    static {
+        SAMPLES.put(BarcodeFormat.QR_CODE, "warm-up");
+        SAMPLES.put(BarcodeFormat.DATA_MATRIX, "warm-up");
+        SAMPLES.put(BarcodeFormat.AZTEC, "warm-up");
+        SAMPLES.put(BarcodeFormat.PDF_417, "warm-up");
+        SAMPLES.put(BarcodeFormat.CODE_128, "warm-up");
+        SAMPLES.put(BarcodeFormat.CODE_93, "WARMUP");
+        SAMPLES.put(BarcodeFormat.CODE_39, "WARMUP");
+        SAMPLES.put(BarcodeFormat.CODABAR, "A123456B");
+        SAMPLES.put(BarcodeFormat.ITF, "12345678");
+        SAMPLES.put(BarcodeFormat.EAN_13, "123456789012");
+        SAMPLES.put(BarcodeFormat.EAN_8, "1234567");
+        SAMPLES.put(BarcodeFormat.UPC_A, "12345678901");
+        SAMPLES.put(BarcodeFormat.UPC_E, "0123456");
+    }
+
+    /**
+     * White border added around each barcode, in pixels.
+     */
+    private static final int BORDER = 16;
+
+    private final Decoder decoder;
+    private final Collection<BarcodeFormat> formats;
+    private int rounds = 5;
+
+    private volatile boolean cancelled = false;
+    private volatile boolean finished = false;
+    private volatile long duration = -1;
+    private volatile int decodeCount = 0;
+    private volatile int resultCount = 0;
+
+    /**
+     * @param decoder the decoder to warm up. It must not be used by another thread at the same
+     *                time.
+     * @param formats the formats to decode, or null for all formats
+     */
+    public DecoderWarmUp(Decoder decoder, Collection<BarcodeFormat> formats) {
+        this.decoder = decoder;
+        this.formats = formats;
+    }
+
+    /**
+     * Default to 5.
+     *
+     * @return the number of times each synthetic barcode is decoded
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Set the number of times each synthetic barcode is decoded. Call before run().
+     *
+     * @param rounds the number of rounds, at least 1
+     */
+    public void setRounds(int rounds) {
+        if (rounds < 1) {
+            throw new IllegalArgumentException("At least one round is required");
+        }
+        this.rounds = rounds;
+    }
+
+    /**
+     * Stop as soon as the current decode is done.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        List<LuminanceSource> sources = createSources(formats);
+
+        int decodeCount = 0;
+        int resultCount = 0;
+        for (int round = 0; round < rounds && !cancelled; round++) {
+            for (int i = 0; i < sources.size() && !cancelled; i++) {
+                if (decoder.decode(sources.get(i)) != null) {
+                    resultCount++;
+                }
+                decodeCount++;
+            }
+        }
+
+        this.decodeCount = decodeCount;
+        this.resultCount = resultCount;
+        this.duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        this.finished = !cancelled;
+        Log.i(TAG, "Warm-up " + (cancelled ? "cancelled" : "done") + " after " + duration + " ms, "
+                + resultCount + " of " + decodeCount + " barcodes decoded");
+    }
+
+    /**
+     * @param formats the formats, or null for all formats
+     * @return a source with a synthetic barcode for each format that can be encoded
+     */
+    static List<LuminanceSource> createSources(Collection<BarcodeFormat> formats) {
+        List<LuminanceSource> sources = new ArrayList<>();
+        BarcodeEncoder encoder = new BarcodeEncoder();
+        for (Map.Entry<BarcodeFormat, String> sample : SAMPLES.entrySet()) {
+            BarcodeFormat format = sample.getKey();
+            if (formats != null && !formats.contains(format)) {
+                continue;
+            }
+            boolean matrix = format == BarcodeFormat.QR_CODE || format == BarcodeFormat.DATA_MATRIX
+                    || format == BarcodeFormat.AZTEC;
+            try {
+                BitMatrix barcode = encoder.encode(sample.getValue(), format, matrix ? 200 : 300, matrix ? 200 : 100);
+                sources.add(render(barcode));
+            } catch (WriterException e) {
+                Log.w(TAG, "Cannot encode a " + format + " barcode", e);
+            }
+        }
+        return sources;
+    }
+
+    private static LuminanceSource render(BitMatrix barcode) {
+        int width = barcode.getWidth() + 2 * BORDER;
+        int height = barcode.getHeight() + 2 * BORDER;
+        byte[] data = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int bx = x - BORDER;
+                int by = y - BORDER;
+                boolean black = bx >= 0 && by >= 0 && bx < barcode.getWidth() && by < barcode.getHeight()
+                        && barcode.get(bx, by);
+                data[y * width + x] = (byte) (black ? 0 : 255);
+            }
+        }
+        return new PlanarYUVLuminanceSource(data, width, height, 0, 0, width, height, false);
+    }
+
+    /**
+     * @return true if the warm-up ran to the end
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return the duration of the warm-up in milliseconds, or -1 if it did not run yet
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the number of synthetic barcodes decoded, successfully or not
+     */
+    public int getDecodeCount() {
+        return decodeCount;
+    }
+
+    /**
+     * @return the number of synthetic barcodes successfully decoded
+     */
+    public int getResultCount() {
+        return resultCount;
+    }
+}
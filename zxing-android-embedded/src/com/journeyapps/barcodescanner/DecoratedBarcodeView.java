@@ -50,9 +50,7 @@ public class DecoratedBarcodeView extends FrameLayout {
 
         @Override
         public void possibleResultPoints(List<ResultPoint> resultPoints) {
-            for (ResultPoint point : resultPoints) {
-                viewFinder.addPossibleResultPoint(point);
-            }
+            // The view finder drains its ResultPointBuffer instead.
             delegate.possibleResultPoints(resultPoints);
         }
 
@@ -115,6 +113,7 @@ public class DecoratedBarcodeView extends FrameLayout {
         }
 
         viewFinder.setCameraPreview(barcodeView);
+        barcodeView.setResultPointBuffer(viewFinder.getResultPointBuffer());
     }
 
     /**
@@ -140,13 +139,16 @@ public class DecoratedBarcodeView extends FrameLayout {
 
         // Check to see if the scan should be inverted.
         boolean inverted = intent.getBooleanExtra(Intents.Scan.INVERTED_SCAN, false);
+        boolean mixed = intent.getBooleanExtra(Intents.Scan.MIXED_SCAN, false);
 
         String characterSet = intent.getStringExtra(Intents.Scan.CHARACTER_SET);
 
         MultiFormatReader reader = new MultiFormatReader();
         reader.setHints(decodeHints);
 
-        barcodeView.setDecoderFactory(new DefaultDecoderFactory(decodeFormats, decodeHints, characterSet, inverted));
+        DefaultDecoderFactory decoderFactory = new DefaultDecoderFactory(decodeFormats, decodeHints, characterSet, inverted);
+        decoderFactory.setMixedPolarity(mixed);
+        barcodeView.setDecoderFactory(decoderFactory);
     }
 
     private void initSetting(int cameraId) {
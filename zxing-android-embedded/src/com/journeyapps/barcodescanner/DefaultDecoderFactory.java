@@ -3,19 +3,38 @@ package com.journeyapps.barcodescanner;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.MultiFormatReader;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * DecoderFactory that creates a MultiFormatReader with specified hints.
  */
 public class DefaultDecoderFactory implements DecoderFactory {
+    /**
+     * Formats that are read the same way in any orientation.
+     */
+    private static final Set<BarcodeFormat> ROTATION_INVARIANT_FORMATS =
+            EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX, BarcodeFormat.AZTEC);
+
     private Collection<BarcodeFormat> decodeFormats;
     private Map<DecodeHintType, ?> hints;
     private String characterSet;
     private boolean inverted;
+    private boolean decodeInSensorOrientation;
+    private boolean decodeMultiple;
+    private int downscaleFactor = 1;
+    private boolean mixedPolarity;
+    private boolean adaptiveBinarizer;
+    private boolean formatScheduling;
+    private boolean oneDEveryFrame;
 
     public DefaultDecoderFactory() {
     }
@@ -27,8 +46,167 @@ public class DefaultDecoderFactory implements DecoderFactory {
         this.inverted = inverted;
     }
 
+    /**
+     * @return the formats to decode, from the constructor or the POSSIBLE_FORMATS hint, or null
+     * for all formats
+     */
+    public Collection<BarcodeFormat> getDecodeFormats() {
+        if (decodeFormats != null) {
+            return decodeFormats;
+        }
+        if (hints != null) {
+            return formats(hints.get(DecodeHintType.POSSIBLE_FORMATS));
+        }
+        return null;
+    }
+
+    /**
+     * Default to false.
+     *
+     * If true, and all the formats to decode can be read in any orientation (QR Code, Data Matrix
+     * and Aztec), the created decoders skip rotating the preview to display orientation.
+     *
+     * @param decodeInSensorOrientation true to decode in camera orientation where possible
+     * @see Decoder#setDecodeInSensorOrientation(boolean)
+     */
+    public void setDecodeInSensorOrientation(boolean decodeInSensorOrientation) {
+        this.decodeInSensorOrientation = decodeInSensorOrientation;
+    }
+
+    public boolean isDecodeInSensorOrientation() {
+        return decodeInSensorOrientation;
+    }
+
+    /**
+     * Default to false.
+     *
+     * If true, the created decoders find all the barcodes in a frame instead of only one, using a
+     * QRCodeMultiReader if only QR codes are decoded, or a GenericMultipleBarcodeReader otherwise.
+     * Cannot be combined with mixed polarity, a downscale factor, an adaptive binarizer or format
+     * scheduling.
+     *
+     * @param decodeMultiple true to decode multiple barcodes per frame
+     * @see MultipleBarcodeDecoder
+     */
+    public void setDecodeMultiple(boolean decodeMultiple) {
+        this.decodeMultiple = decodeMultiple;
+    }
+
+    public boolean isDecodeMultiple() {
+        return decodeMultiple;
+    }
+
+    /**
+     * Default to 1.
+     *
+     * If 2 or 4, the created decoders first try the image downscaled by this factor, and the full
+     * resolution image only if no barcode is found. This is faster for large barcodes, and slower
+     * for frames without one, by up to a third. Cannot be combined with multiple barcodes, mixed
+     * polarity, an adaptive binarizer or format scheduling.
+     *
+     * @param downscaleFactor 1, 2 or 4
+     * @see PyramidDecoder
+     */
+    public void setDownscaleFactor(int downscaleFactor) {
+        if (downscaleFactor != 1 && downscaleFactor != 2 && downscaleFactor != 4) {
+            throw new IllegalArgumentException("Downscale factor must be 1, 2 or 4");
+        }
+        this.downscaleFactor = downscaleFactor;
+    }
+
+    public int getDownscaleFactor() {
+        return downscaleFactor;
+    }
+
+    /**
+     * Default to false.
+     *
+     * If true, the created decoders read barcodes of both polarities: dark on light, and light on
+     * dark, starting with the inverted polarity if inverted is set. Cannot be combined with
+     * multiple barcodes, a downscale factor, an adaptive binarizer or format scheduling.
+     *
+     * @param mixedPolarity true to read both polarities
+     * @see MixedPolarityDecoder
+     */
+    public void setMixedPolarity(boolean mixedPolarity) {
+        this.mixedPolarity = mixedPolarity;
+    }
+
+    public boolean isMixedPolarity() {
+        return mixedPolarity;
+    }
+
+    /**
+     * Default to false.
+     *
+     * If true, the created decoders choose between HybridBinarizer and GlobalHistogramBinarizer
+     * for each frame, based on their recent success rate and speed. Cannot be combined with
+     * multiple barcodes, mixed polarity, a downscale factor or format scheduling.
+     *
+     * @param adaptiveBinarizer true to choose the binarizer adaptively
+     * @see AdaptiveBinarizerDecoder
+     */
+    public void setAdaptiveBinarizer(boolean adaptiveBinarizer) {
+        this.adaptiveBinarizer = adaptiveBinarizer;
+    }
+
+    public boolean isAdaptiveBinarizer() {
+        return adaptiveBinarizer;
+    }
+
+    /**
+     * Default to false.
+     *
+     * If true, and the formats to decode fall in more than one group, the created decoders only
+     * decode one group of formats per frame. This bounds the time per frame when many formats are
+     * decoded. Cannot be combined with multiple barcodes, mixed polarity, a downscale factor or
+     * an adaptive binarizer.
+     *
+     * This trades latency for throughput. With all the formats, the 1D group is only tried in
+     * about a quarter of the frames, so a 1D barcode takes longer to read: on a 1280x720 frame, an
+     * empty frame goes from 2.6 to 1.1 ms, but a Code 128 frame from 0.45 to 1.2 ms on average.
+     * Decoding the 1D formats in every frame takes Code 128 back to 0.35 ms, for 1.5 ms per empty
+     * frame.
+     *
+     * @param formatScheduling true to decode one group of formats per frame
+     * @see FormatSchedulingDecoder#defaultGroups(Collection)
+     * @see #setOneDEveryFrame(boolean)
+     */
+    public void setFormatScheduling(boolean formatScheduling) {
+        this.formatScheduling = formatScheduling;
+    }
+
+    public boolean isFormatScheduling() {
+        return formatScheduling;
+    }
+
+    /**
+     * Default to false.
+     *
+     * If true, and format scheduling is set, the 1D formats are decoded in every frame, and only
+     * the other groups take turns. 1D barcodes are cheap to read, and are otherwise only tried in
+     * a fraction of the frames.
+     *
+     * @param oneDEveryFrame true to decode the 1D formats in every frame
+     * @see FormatSchedulingDecoder#setEveryFrameGroup(int)
+     */
+    public void setOneDEveryFrame(boolean oneDEveryFrame) {
+        this.oneDEveryFrame = oneDEveryFrame;
+    }
+
+    public boolean isOneDEveryFrame() {
+        return oneDEveryFrame;
+    }
+
+    /**
+     * @throws IllegalStateException if more than one of multiple barcodes, mixed polarity, a
+     *                               downscale factor, an adaptive binarizer and format scheduling
+     *                               is set. Each of them wraps the reader in a different Decoder.
+     */
     @Override
     public Decoder createDecoder(Map<DecodeHintType, ?> baseHints) {
+        checkOptions();
+
         Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
 
         hints.putAll(baseHints);
@@ -45,10 +223,103 @@ public class DefaultDecoderFactory implements DecoderFactory {
             hints.put(DecodeHintType.CHARACTER_SET, characterSet);
         }
 
-        MultiFormatReader reader = new MultiFormatReader();
-        reader.setHints(hints);
+        Collection<BarcodeFormat> formats = formats(hints.get(DecodeHintType.POSSIBLE_FORMATS));
 
-        return inverted ? new InvertedDecoder(reader) : new Decoder(reader);
+        List<Set<BarcodeFormat>> formatGroups = null;
+        if (formatScheduling) {
+            formatGroups = FormatSchedulingDecoder.defaultGroups(formats);
+        }
+
+        Decoder decoder;
+        if (decodeMultiple) {
+            MultipleBarcodeDecoder multipleDecoder;
+            if (formats != null && formats.size() == 1 && formats.contains(BarcodeFormat.QR_CODE)) {
+                QRCodeMultiReader reader = new QRCodeMultiReader();
+                multipleDecoder = new MultipleBarcodeDecoder(reader, reader, hints);
+            } else {
+                MultiFormatReader reader = new MultiFormatReader();
+                reader.setHints(hints);
+                multipleDecoder = new MultipleBarcodeDecoder(reader, new GenericMultipleBarcodeReader(reader), hints);
+            }
+            decoder = multipleDecoder;
+        } else if (formatGroups != null && formatGroups.size() > 1) {
+            // One reader per group, created by the FormatSchedulingDecoder.
+            FormatSchedulingDecoder schedulingDecoder = new FormatSchedulingDecoder(formatGroups, hints);
+            if (oneDEveryFrame && FormatSchedulingDecoder.ONE_D_FORMATS.containsAll(formatGroups.get(0))) {
+                schedulingDecoder.setEveryFrameGroup(0);
+            }
+            decoder = schedulingDecoder;
+        } else {
+            MultiFormatReader reader = new MultiFormatReader();
+            reader.setHints(hints);
+            if (mixedPolarity) {
+                MixedPolarityDecoder mixedPolarityDecoder = new MixedPolarityDecoder(reader);
+                mixedPolarityDecoder.setInvertedFirst(inverted);
+                decoder = mixedPolarityDecoder;
+            } else if (downscaleFactor > 1) {
+                decoder = new PyramidDecoder(reader, downscaleFactor);
+            } else if (adaptiveBinarizer) {
+                decoder = new AdaptiveBinarizerDecoder(reader);
+            } else {
+                decoder = new Decoder(reader);
+            }
+        }
+
+        if (!mixedPolarity) {
+            // Mixed polarity reads both polarities, starting with the inverted one if set.
+            decoder.setInverted(inverted);
+        }
+
+        if (decodeInSensorOrientation) {
+            decoder.setDecodeInSensorOrientation(isRotationInvariant(formats));
+        }
+        return decoder;
+    }
+
+    private void checkOptions() {
+        List<String> options = new ArrayList<>();
+        if (decodeMultiple) {
+            options.add("multiple barcodes");
+        }
+        if (mixedPolarity) {
+            options.add("mixed polarity");
+        }
+        if (downscaleFactor > 1) {
+            options.add("downscale factor " + downscaleFactor);
+        }
+        if (adaptiveBinarizer) {
+            options.add("adaptive binarizer");
+        }
+        if (formatScheduling) {
+            options.add("format scheduling");
+        }
+        if (options.size() > 1) {
+            throw new IllegalStateException("Cannot combine " + options);
+        }
+    }
+
+    /**
+     * @param hint the POSSIBLE_FORMATS hint, or null
+     * @return a copy of the formats in the hint, or null if the hint is not a collection
+     */
+    private static Collection<BarcodeFormat> formats(Object hint) {
+        if (!(hint instanceof Collection)) {
+            return null;
+        }
+        Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+        for (Object format : (Collection<?>) hint) {
+            if (format instanceof BarcodeFormat) {
+                formats.add((BarcodeFormat) format);
+            }
+        }
+        return formats;
+    }
 
+    /**
+     * @param formats the formats to decode, or null for all formats
+     * @return true if all the formats can be read in any orientation
+     */
+    private static boolean isRotationInvariant(Collection<BarcodeFormat> formats) {
+        return formats != null && !formats.isEmpty() && ROTATION_INVARIANT_FORMATS.containsAll(formats);
     }
 }
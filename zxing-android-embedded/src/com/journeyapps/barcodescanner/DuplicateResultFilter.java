@@ -0,0 +1,172 @@
+package com.journeyapps.barcodescanner;
+
+import android.os.SystemClock;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+/**
+ * Suppresses barcodes that were reported recently, for continuous decoding.
+ *
+ * Remembers up to a fixed number of barcodes, keyed by format and a 64-bit hash of the raw bytes,
+ * or of the text if there are none. A barcode is a duplicate if it was seen less than the TTL
+ * ago. Seeing a barcode again restarts its TTL, so a barcode staying in view is only reported
+ * once. When full, the least recently seen barcode is forgotten.
+ *
+ * Checking a barcode does not allocate. Not thread-safe: BarcodeView only uses it on the UI
+ * thread.
+ *
+ * @see BarcodeView#setDuplicateFilter(DuplicateResultFilter)
+ */
+public class DuplicateResultFilter {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int capacity;
+    private final long ttl;
+
+    private final long[] hashes;
+    private final int[] formats;
+    private final long[] lastSeen;
+    private int size = 0;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * @param capacity the maximum number of barcodes to remember
+     * @param ttl      the time in milliseconds during which a barcode seen again is a duplicate
+     */
+    public DuplicateResultFilter(int capacity, long ttl) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        this.capacity = capacity;
+        this.ttl = ttl;
+        this.hashes = new long[capacity];
+        this.formats = new int[capacity];
+        this.lastSeen = new long[capacity];
+    }
+
+    /**
+     * Check a barcode, and remember it.
+     *
+     * @param result the barcode
+     * @return true if the barcode was seen less than the TTL ago
+     */
+    public boolean isDuplicate(Result result) {
+        return isDuplicate(result.getBarcodeFormat(), hash(result), SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * @param format the format of the barcode
+     * @param hash   the hash of the barcode contents
+     * @param now    the current time in milliseconds
+     * @return true if the barcode was seen less than the TTL ago
+     */
+    boolean isDuplicate(BarcodeFormat format, long hash, long now) {
+        int formatKey = format.ordinal();
+        int leastRecent = 0;
+        for (int i = 0; i < size; i++) {
+            if (hashes[i] == hash && formats[i] == formatKey) {
+                boolean duplicate = now - lastSeen[i] < ttl;
+                lastSeen[i] = now;
+                if (duplicate) {
+                    hitCount++;
+                } else {
+                    missCount++;
+                }
+                return duplicate;
+            }
+            if (lastSeen[i] < lastSeen[leastRecent]) {
+                leastRecent = i;
+            }
+        }
+
+        missCount++;
+        int slot;
+        if (size < capacity) {
+            slot = size++;
+        } else {
+            slot = leastRecent;
+            if (now - lastSeen[slot] < ttl) {
+                // Forgotten before its TTL expired.
+                evictionCount++;
+            }
+        }
+        hashes[slot] = hash;
+        formats[slot] = formatKey;
+        lastSeen[slot] = now;
+        return false;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the raw bytes of the result, or of its text if there are no raw bytes.
+     *
+     * @param result the result
+     * @return the hash
+     */
+    static long hash(Result result) {
+        long hash = FNV_OFFSET_BASIS;
+        byte[] rawBytes = result.getRawBytes();
+        if (rawBytes != null && rawBytes.length > 0) {
+            for (byte b : rawBytes) {
+                hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+            }
+        } else {
+            String text = result.getText();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+                hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Forget all the barcodes. The counters are kept.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the maximum number of barcodes remembered
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the time in milliseconds during which a barcode seen again is a duplicate
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @return the number of barcodes suppressed as duplicates
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of barcodes let through
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of barcodes forgotten before their TTL expired, to make room for others
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+}
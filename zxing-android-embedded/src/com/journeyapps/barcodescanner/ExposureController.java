@@ -0,0 +1,210 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.LuminanceSource;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the crop rectangle well exposed, based on a luminance histogram of each preview frame,
+ * without relying on a light sensor.
+ *
+ * The histogram is sampled on a grid of about 32 x 32 points. When a frame is too dark or too
+ * bright for a few frames in a row, the camera is asked to adjust its exposure, at most once a
+ * second to let the exposure settle. Frames so dark or so bright that they are unlikely to decode
+ * are skipped, but a few frames in a row are decoded regardless, in case the camera cannot adjust.
+ *
+ * Thread-safe.
+ *
+ * @see com.journeyapps.barcodescanner.camera.CameraInstance#adjustExposure(boolean)
+ */
+final class ExposureController {
+    enum Exposure {
+        /**
+         * Almost everything is dark, too dark to decode.
+         */
+        BADLY_UNDEREXPOSED,
+        UNDEREXPOSED,
+        WELL_EXPOSED,
+        OVEREXPOSED,
+        /**
+         * Almost everything is saturated, too bright to decode.
+         */
+        BADLY_OVEREXPOSED;
+
+        boolean isBad() {
+            return this == BADLY_UNDEREXPOSED || this == BADLY_OVEREXPOSED;
+        }
+    }
+
+    /**
+     * Approximate number of samples per side for the histogram.
+     */
+    private static final int HISTOGRAM_SAMPLES = 32;
+
+    static final int HISTOGRAM_SIZE = 256;
+
+    /**
+     * A frame with a median luminance below this is underexposed.
+     */
+    private static final int DARK_MEDIAN = 64;
+
+    /**
+     * A frame with 95% of the samples below this is badly underexposed.
+     */
+    private static final int VERY_DARK = 48;
+
+    /**
+     * Samples at or above this are saturated.
+     */
+    private static final int SATURATED = 250;
+
+    /**
+     * A frame with more than this fraction of saturated samples is overexposed.
+     */
+    private static final float OVEREXPOSED_FRACTION = 0.25f;
+
+    /**
+     * A frame with more than this fraction of saturated samples is badly overexposed.
+     */
+    private static final float BADLY_OVEREXPOSED_FRACTION = 0.9f;
+
+    /**
+     * Number of frames in a row with the same exposure before adjusting.
+     */
+    static final int FRAMES_BEFORE_ADJUSTING = 3;
+
+    /**
+     * Minimum time between two adjustments.
+     */
+    static final long ADJUSTMENT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Maximum number of frames skipped in a row.
+     */
+    static final int MAX_SKIPPED_IN_A_ROW = 5;
+
+    private boolean lastBrighter = false;
+    private int inARow = 0;
+    private long lastAdjustment = Long.MIN_VALUE;
+    private int skippedInARow = 0;
+
+    /**
+     * Call for every frame about to be decoded.
+     *
+     * @param exposure  the exposure of the frame
+     * @param timestamp the time the frame was received, in nanoseconds
+     * @return 1 to make the preview brighter, -1 to make it darker, or 0 to leave it
+     */
+    synchronized int adjustment(Exposure exposure, long timestamp) {
+        if (exposure == Exposure.WELL_EXPOSED) {
+            inARow = 0;
+            return 0;
+        }
+        boolean brighter = exposure == Exposure.UNDEREXPOSED || exposure == Exposure.BADLY_UNDEREXPOSED;
+        if (inARow > 0 && brighter != lastBrighter) {
+            inARow = 0;
+        }
+        lastBrighter = brighter;
+        inARow++;
+        if (inARow >= FRAMES_BEFORE_ADJUSTING
+                && (lastAdjustment == Long.MIN_VALUE || timestamp - lastAdjustment >= ADJUSTMENT_INTERVAL)) {
+            inARow = 0;
+            lastAdjustment = timestamp;
+            return brighter ? 1 : -1;
+        }
+        return 0;
+    }
+
+    /**
+     * @param exposure the exposure of the frame
+     * @return true if the frame should be decoded, false to skip it
+     */
+    synchronized boolean shouldDecode(Exposure exposure) {
+        if (exposure.isBad() && skippedInARow < MAX_SKIPPED_IN_A_ROW) {
+            skippedInARow++;
+            return false;
+        }
+        skippedInARow = 0;
+        return true;
+    }
+
+    /**
+     * @param source    the source, in any orientation
+     * @param histogram a buffer for the histogram, HISTOGRAM_SIZE ints
+     * @return the exposure of the source
+     */
+    static Exposure measure(LuminanceSource source, int[] histogram) {
+        return measure(source, histogram, new byte[source.getWidth()]);
+    }
+
+    /**
+     * Same as measure(LuminanceSource, int[]), without allocating.
+     *
+     * @param source    the source, in any orientation
+     * @param histogram a buffer for the histogram, HISTOGRAM_SIZE ints
+     * @param row       a row buffer, at least as wide as the source
+     * @return the exposure of the source
+     */
+    static Exposure measure(LuminanceSource source, int[] histogram, byte[] row) {
+        int count = histogram(source, histogram, row);
+        if (count == 0) {
+            return Exposure.WELL_EXPOSED;
+        }
+
+        int saturated = 0;
+        for (int i = SATURATED; i < HISTOGRAM_SIZE; i++) {
+            saturated += histogram[i];
+        }
+        if (saturated > BADLY_OVEREXPOSED_FRACTION * count) {
+            return Exposure.BADLY_OVEREXPOSED;
+        }
+        if (percentile(histogram, count, 0.95f) < VERY_DARK) {
+            return Exposure.BADLY_UNDEREXPOSED;
+        }
+        if (saturated > OVEREXPOSED_FRACTION * count) {
+            return Exposure.OVEREXPOSED;
+        }
+        if (percentile(histogram, count, 0.5f) < DARK_MEDIAN) {
+            return Exposure.UNDEREXPOSED;
+        }
+        return Exposure.WELL_EXPOSED;
+    }
+
+    /**
+     * @param source    the source
+     * @param histogram the histogram, HISTOGRAM_SIZE ints
+     * @param row       a row buffer, at least as wide as the source
+     * @return the number of samples
+     */
+    static int histogram(LuminanceSource source, int[] histogram, byte[] row) {
+        Arrays.fill(histogram, 0);
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int step = Math.max(1, Math.min(width, height) / HISTOGRAM_SAMPLES);
+        int count = 0;
+        for (int y = step / 2; y < height; y += step) {
+            row = source.getRow(y, row);
+            for (int x = step / 2; x < width; x += step) {
+                histogram[row[x] & 0xff]++;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the lowest luminance with at least the given fraction of the samples at or below it
+     */
+    private static int percentile(int[] histogram, int count, float fraction) {
+        int target = (int) Math.ceil(fraction * count);
+        int sum = 0;
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            sum += histogram[i];
+            if (sum >= target) {
+                return i;
+            }
+        }
+        return HISTOGRAM_SIZE - 1;
+    }
+}
@@ -0,0 +1,263 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Result;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Decoder splitting the formats to decode into groups, and decoding only one group per frame.
+ *
+ * MultiFormatReader runs the reader of every format on every frame, so the time per frame is the
+ * sum of all of them. Decoding one group per frame bounds that time to the slowest group, at the
+ * cost of taking several frames to try all the formats.
+ *
+ * Groups take turns in a weighted round-robin. A group that found a barcode recently gets up to
+ * four times as many frames as the others, decaying back to an equal share over about 20 frames.
+ *
+ * One group may be decoded in every frame instead, before the scheduled group. This suits a cheap
+ * group, such as the 1D formats, that would otherwise only get a fraction of the frames.
+ *
+ * The counters may be read from any thread.
+ *
+ * @see DefaultDecoderFactory#setFormatScheduling(boolean)
+ */
+public class FormatSchedulingDecoder extends Decoder {
+    /**
+     * Extra weight of a group that just found a barcode.
+     */
+    private static final float RECENT_WEIGHT = 3;
+
+    /**
+     * Decay of the extra weight per frame.
+     */
+    private static final float DECAY = 0.9f;
+
+    /**
+     * The 1D formats, read from the same rows by MultiFormatOneDReader.
+     */
+    static final Set<BarcodeFormat> ONE_D_FORMATS = Collections.unmodifiableSet(EnumSet.of(
+            BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.EAN_13, BarcodeFormat.EAN_8,
+            BarcodeFormat.CODABAR, BarcodeFormat.CODE_39, BarcodeFormat.CODE_93, BarcodeFormat.CODE_128,
+            BarcodeFormat.ITF, BarcodeFormat.RSS_14, BarcodeFormat.RSS_EXPANDED));
+
+    private final List<Set<BarcodeFormat>> groups;
+    private final MultiFormatReader[] readers;
+    private int everyFrameGroup = -1;
+
+    private final float[] recency;
+    private final float[] credits;
+    private final long[] attemptCounts;
+    private final long[] successCounts;
+
+    // The group of the current frame.
+    private int current = 0;
+
+    /**
+     * @param groups the formats of each group, not empty
+     * @param hints  the hints for all the readers. POSSIBLE_FORMATS is replaced by the formats of
+     *               each group.
+     * @see #defaultGroups(Collection)
+     */
+    public FormatSchedulingDecoder(List<? extends Collection<BarcodeFormat>> groups, Map<DecodeHintType, ?> hints) {
+        this(createReaders(groups, hints), groups);
+    }
+
+    private FormatSchedulingDecoder(MultiFormatReader[] readers, List<? extends Collection<BarcodeFormat>> groups) {
+        super(readers[0]);
+        this.readers = readers;
+        List<Set<BarcodeFormat>> copy = new ArrayList<>(groups.size());
+        for (Collection<BarcodeFormat> group : groups) {
+            copy.add(Collections.unmodifiableSet(EnumSet.copyOf(group)));
+        }
+        this.groups = Collections.unmodifiableList(copy);
+        this.recency = new float[readers.length];
+        this.credits = new float[readers.length];
+        this.attemptCounts = new long[readers.length];
+        this.successCounts = new long[readers.length];
+    }
+
+    private static MultiFormatReader[] createReaders(List<? extends Collection<BarcodeFormat>> groups, Map<DecodeHintType, ?> hints) {
+        if (groups.isEmpty()) {
+            throw new IllegalArgumentException("At least one group is required");
+        }
+        MultiFormatReader[] readers = new MultiFormatReader[groups.size()];
+        for (int i = 0; i < readers.length; i++) {
+            Collection<BarcodeFormat> group = groups.get(i);
+            if (group.isEmpty()) {
+                throw new IllegalArgumentException("Empty format group");
+            }
+            Map<DecodeHintType, Object> groupHints = new EnumMap<>(DecodeHintType.class);
+            if (hints != null) {
+                groupHints.putAll(hints);
+            }
+            groupHints.put(DecodeHintType.POSSIBLE_FORMATS, group);
+            readers[i] = new MultiFormatReader();
+            readers[i].setHints(groupHints);
+        }
+        return readers;
+    }
+
+    /**
+     * Split formats into groups of similar cost: all the 1D formats, which are read from the same
+     * rows, QR Code, Data Matrix and Aztec, and PDF 417 and MaxiCode. The 1D group comes first.
+     *
+     * @param formats the formats to decode, or null for all formats
+     * @return the non-empty groups
+     */
+    public static List<Set<BarcodeFormat>> defaultGroups(Collection<BarcodeFormat> formats) {
+        List<Set<BarcodeFormat>> groups = new ArrayList<>();
+        addGroup(groups, formats, EnumSet.copyOf(ONE_D_FORMATS));
+        addGroup(groups, formats, EnumSet.of(BarcodeFormat.QR_CODE));
+        addGroup(groups, formats, EnumSet.of(BarcodeFormat.DATA_MATRIX, BarcodeFormat.AZTEC));
+        addGroup(groups, formats, EnumSet.of(BarcodeFormat.PDF_417, BarcodeFormat.MAXICODE));
+        return groups;
+    }
+
+    private static void addGroup(List<Set<BarcodeFormat>> groups, Collection<BarcodeFormat> formats, Set<BarcodeFormat> group) {
+        if (formats != null) {
+            group.retainAll(formats);
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+    }
+
+    /**
+     * @return the formats of each group
+     */
+    public List<Set<BarcodeFormat>> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Default to -1, for none.
+     *
+     * @return the index of the group decoded in every frame, or -1
+     */
+    public synchronized int getEveryFrameGroup() {
+        return everyFrameGroup;
+    }
+
+    /**
+     * Decode a group in every frame, before the group scheduled for the frame. The other groups
+     * take turns as before.
+     *
+     * @param everyFrameGroup the index of the group, or -1 for none
+     */
+    public synchronized void setEveryFrameGroup(int everyFrameGroup) {
+        if (everyFrameGroup < -1 || everyFrameGroup >= groups.size()) {
+            throw new IllegalArgumentException("No group " + everyFrameGroup);
+        }
+        this.everyFrameGroup = everyFrameGroup;
+    }
+
+    @Override
+    public Result decode(LuminanceSource source) {
+        current = select();
+        return super.decode(source);
+    }
+
+    @Override
+    public Result decode(LuminanceSource source, DecodeTimings timings) {
+        if (timings == null) {
+            return decode(source);
+        }
+        current = select();
+        return super.decode(source, timings);
+    }
+
+    @Override
+    protected Result decode(BinaryBitmap bitmap) {
+        clearPossibleResultPoints();
+        int everyFrameGroup = getEveryFrameGroup();
+        if (everyFrameGroup >= 0 && everyFrameGroup != current) {
+            // Both groups share the binarized image.
+            Result result = decode(bitmap, everyFrameGroup);
+            if (result != null) {
+                return result;
+            }
+        }
+        return decode(bitmap, current);
+    }
+
+    private Result decode(BinaryBitmap bitmap, int group) {
+        checkCancelled();
+        MultiFormatReader reader = readers[group];
+        Result result;
+        try {
+            result = reader.decodeWithState(bitmap);
+        } catch (Exception e) {
+            // Decode error, try again next frame
+            result = null;
+        } finally {
+            reader.reset();
+        }
+        record(group, result != null);
+        return result;
+    }
+
+    /**
+     * Smooth weighted round-robin: every group earns its weight in credits, and the group with
+     * the most credits is decoded and pays for it. The group decoded in every frame takes no turn.
+     *
+     * @return the group to decode in the next frame
+     */
+    synchronized int select() {
+        float total = 0;
+        int selected = -1;
+        for (int i = 0; i < credits.length; i++) {
+            if (i == everyFrameGroup) {
+                continue;
+            }
+            float weight = 1 + RECENT_WEIGHT * recency[i];
+            credits[i] += weight;
+            total += weight;
+            if (selected == -1 || credits[i] > credits[selected]) {
+                selected = i;
+            }
+            recency[i] *= DECAY;
+        }
+        if (selected == -1) {
+            // The only group is decoded in every frame anyway.
+            return everyFrameGroup;
+        }
+        credits[selected] -= total;
+        return selected;
+    }
+
+    synchronized void record(int group, boolean success) {
+        attemptCounts[group]++;
+        if (success) {
+            successCounts[group]++;
+            recency[group] = 1;
+        }
+    }
+
+    /**
+     * @param group the index of the group
+     * @return the number of frames decoded with the formats of the group
+     */
+    public synchronized long getAttemptCount(int group) {
+        return attemptCounts[group];
+    }
+
+    /**
+     * @param group the index of the group
+     * @return the number of barcodes found with the formats of the group
+     */
+    public synchronized long getSuccessCount(int group) {
+        return successCounts[group];
+    }
+}
@@ -0,0 +1,15 @@
+package com.journeyapps.barcodescanner;
+
+/**
+ * Receives the fraction of preview frames skipped to hold the decoder's target duty cycle.
+ *
+ * @see BarcodeView#setDecoderTargetDutyCycle(float)
+ */
+public interface FrameSkipListener {
+    /**
+     * Called on the UI thread when the skip ratio changes.
+     *
+     * @param skipRatio the fraction of preview frames skipped, between 0 and 1
+     */
+    void skipRatioChanged(float skipRatio);
+}
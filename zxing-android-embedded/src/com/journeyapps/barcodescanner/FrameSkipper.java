@@ -0,0 +1,106 @@
+package com.journeyapps.barcodescanner;
+
+/**
+ * Decides which preview frames to skip, so that decoding keeps the decoder workers busy for a
+ * target fraction of the time.
+ *
+ * Moving averages of the decode time D and the frame interval I are tracked. Decoding every frame
+ * with N workers keeps them busy for D / (N * I) of the time, so to hold a duty cycle u, a fraction
+ * 1 - u * N * I / D of the frames is skipped. Skipped frames are spread evenly.
+ *
+ * Thread-safe.
+ */
+final class FrameSkipper {
+    /**
+     * Weight of a new sample in the moving averages.
+     */
+    private static final float SMOOTHING = 0.1f;
+
+    /**
+     * Always decode at least one in ten frames, so that the decode time stays up to date.
+     */
+    static final float MAX_SKIP_RATIO = 0.9f;
+
+    /**
+     * Minimum change of the skip ratio to report.
+     */
+    private static final float REPORT_THRESHOLD = 0.01f;
+
+    private final int workerCount;
+    private final float targetDutyCycle;
+
+    private long lastFrameTime = -1;
+    private float frameInterval = 0;
+    private float decodeTime = 0;
+
+    private float skipRatio = 0;
+    private float reportedSkipRatio = 0;
+    private float credit = 0;
+
+    /**
+     * @param workerCount     the number of decoder workers
+     * @param targetDutyCycle the fraction of time the workers should be busy, between 0 and 1
+     */
+    FrameSkipper(int workerCount, float targetDutyCycle) {
+        if (targetDutyCycle <= 0 || targetDutyCycle > 1) {
+            throw new IllegalArgumentException("Target duty cycle must be in (0, 1]");
+        }
+        this.workerCount = workerCount;
+        this.targetDutyCycle = targetDutyCycle;
+    }
+
+    /**
+     * Call for every frame received from the camera.
+     *
+     * @param timestamp the time the frame was received, in nanoseconds
+     * @return true if the frame should be decoded, false to skip it
+     */
+    synchronized boolean shouldDecode(long timestamp) {
+        if (lastFrameTime >= 0) {
+            frameInterval = average(frameInterval, timestamp - lastFrameTime);
+        }
+        lastFrameTime = timestamp;
+
+        credit += 1 - skipRatio;
+        if (credit >= 1) {
+            credit -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Call when a frame is decoded.
+     *
+     * @param duration the time taken to decode the frame, in nanoseconds
+     * @return true if the skip ratio changed enough to report it
+     */
+    synchronized boolean decoded(long duration) {
+        decodeTime = average(decodeTime, duration);
+
+        if (frameInterval > 0 && decodeTime > 0) {
+            float ratio = 1 - targetDutyCycle * workerCount * frameInterval / decodeTime;
+            skipRatio = Math.max(0, Math.min(MAX_SKIP_RATIO, ratio));
+        }
+
+        if (Math.abs(skipRatio - reportedSkipRatio) >= REPORT_THRESHOLD) {
+            reportedSkipRatio = skipRatio;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the fraction of frames currently skipped, between 0 and MAX_SKIP_RATIO
+     */
+    synchronized float getSkipRatio() {
+        return skipRatio;
+    }
+
+    private static float average(float average, long sample) {
+        if (average == 0) {
+            return sample;
+        }
+        return average + SMOOTHING * (sample - average);
+    }
+}
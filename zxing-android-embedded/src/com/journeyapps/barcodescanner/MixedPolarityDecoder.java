@@ -0,0 +1,212 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * A Decoder reading both dark barcodes on a light background, and light barcodes on a dark
+ * background.
+ *
+ * The image is binarized once. For the inverted polarity, the bits of the binarized image are
+ * flipped in place, which is much cheaper than binarizing the inverted image again.
+ *
+ * By default both polarities are tried on each frame, starting with the one that last found a
+ * barcode. In alternating mode only one polarity is tried on each frame, switching to the other
+ * one after a frame without a barcode.
+ *
+ * @see DefaultDecoderFactory#setMixedPolarity(boolean)
+ */
+public class MixedPolarityDecoder extends Decoder {
+    private boolean alternating = false;
+    private boolean invertedFirst = false;
+
+    private long normalCount = 0;
+    private long invertedCount = 0;
+
+    // Reused for flipping each row of the binarized image.
+    private BitArray row;
+
+    /**
+     * @param reader the reader
+     */
+    public MixedPolarityDecoder(Reader reader) {
+        super(reader);
+    }
+
+    /**
+     * Default to false.
+     *
+     * @return true if only one polarity is tried on each frame
+     */
+    public boolean isAlternating() {
+        return alternating;
+    }
+
+    /**
+     * Only try one polarity on each frame, halving the time spent on frames without a barcode.
+     * It then takes up to two frames to find a barcode of the other polarity.
+     *
+     * @param alternating true to try one polarity on each frame
+     */
+    public void setAlternating(boolean alternating) {
+        this.alternating = alternating;
+    }
+
+    /**
+     * Default to false.
+     *
+     * @return true if the inverted polarity is tried first on the next frame
+     */
+    public boolean isInvertedFirst() {
+        return invertedFirst;
+    }
+
+    /**
+     * Set the polarity tried first. This is updated every time a barcode is found.
+     *
+     * @param invertedFirst true to try the inverted polarity first
+     */
+    public void setInvertedFirst(boolean invertedFirst) {
+        this.invertedFirst = invertedFirst;
+    }
+
+    /**
+     * @return the number of barcodes found in the normal polarity
+     */
+    public long getNormalCount() {
+        return normalCount;
+    }
+
+    /**
+     * @return the number of barcodes found in the inverted polarity
+     */
+    public long getInvertedCount() {
+        return invertedCount;
+    }
+
+    @Override
+    public Result decode(LuminanceSource source) {
+        return decode(source, null);
+    }
+
+    @Override
+    public Result decode(LuminanceSource source, DecodeTimings timings) {
+        long start = System.nanoTime();
+        BinaryBitmap bitmap = toBitmap(source);
+        if (timings != null && !binarize(bitmap, start, timings)) {
+            return null;
+        }
+
+        boolean inverted = invertedFirst;
+        int attempts = alternating ? 1 : 2;
+        for (int i = 0; i < attempts; i++) {
+            long readStart = System.nanoTime();
+            Result result;
+            if (inverted) {
+                BitMatrix matrix;
+                try {
+                    // Binarized once, the normal polarity reads the same cached matrix.
+                    matrix = bitmap.getBlackMatrix();
+                } catch (NotFoundException e) {
+                    return null;
+                }
+                flip(matrix);
+                try {
+                    result = decode(new BinaryBitmap(new FlippedBinarizer(source.invert(), matrix)));
+                } finally {
+                    flip(matrix);
+                }
+            } else {
+                // 1D formats may be read without binarizing the whole image.
+                result = decode(bitmap);
+            }
+            if (timings != null) {
+                timings.addReadTime(System.nanoTime() - readStart);
+            }
+
+            if (result != null) {
+                invertedFirst = inverted;
+                if (inverted) {
+                    invertedCount++;
+                } else {
+                    normalCount++;
+                }
+                return result;
+            }
+            inverted = !inverted;
+        }
+
+        if (alternating) {
+            invertedFirst = inverted;
+        }
+        return null;
+    }
+
+    private void flip(BitMatrix matrix) {
+        row = flip(matrix, row);
+    }
+
+    /**
+     * Flip all the bits of a matrix in place.
+     *
+     * @param matrix the matrix
+     * @param row    a buffer for a row of the matrix, or null
+     * @return the buffer used, to reuse in the next call
+     */
+    static BitArray flip(BitMatrix matrix, BitArray row) {
+        int width = matrix.getWidth();
+        // The bits past the width must stay 0, for getTopLeftOnBit() and similar.
+        int lastMask = (width & 0x1f) == 0 ? -1 : (1 << (width & 0x1f)) - 1;
+        int words = (width + 31) / 32;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            row = matrix.getRow(y, row);
+            int[] bits = row.getBitArray();
+            for (int i = 0; i < words; i++) {
+                bits[i] = ~bits[i];
+            }
+            bits[words - 1] &= lastMask;
+            matrix.setRow(y, row);
+        }
+        return row;
+    }
+
+    /**
+     * A Binarizer returning an already binarized, flipped image.
+     *
+     * Rotating the image, for TRY_HARDER, binarizes the rotated source again.
+     */
+    static final class FlippedBinarizer extends Binarizer {
+        private final BitMatrix matrix;
+
+        /**
+         * @param source the inverted source
+         * @param matrix the flipped matrix of the source before inverting
+         */
+        FlippedBinarizer(LuminanceSource source, BitMatrix matrix) {
+            super(source);
+            this.matrix = matrix;
+        }
+
+        @Override
+        public BitArray getBlackRow(int y, BitArray row) {
+            return matrix.getRow(y, row);
+        }
+
+        @Override
+        public BitMatrix getBlackMatrix() {
+            return matrix;
+        }
+
+        @Override
+        public Binarizer createBinarizer(LuminanceSource source) {
+            return new HybridBinarizer(source);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.journeyapps.barcodescanner;
+
+import java.util.List;
+
+/**
+ * Callback that is notified of all the barcodes scanned in a single frame, when decoding with a
+ * MultipleBarcodeDecoder.
+ *
+ * A plain BarcodeCallback receives the same barcodes one by one through barcodeResult() instead.
+ */
+public interface MultipleBarcodeCallback extends BarcodeCallback {
+    /**
+     * Barcodes were successfully scanned in a single frame.
+     *
+     * @param results the results, sharing the SourceData of the frame
+     */
+    void barcodeResults(List<BarcodeResult> results);
+}
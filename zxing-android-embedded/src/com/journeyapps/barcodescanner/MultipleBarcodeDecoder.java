@@ -0,0 +1,98 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.multi.MultipleBarcodeReader;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Decoder finding all the barcodes in an image, instead of only one.
+ *
+ * Use a GenericMultipleBarcodeReader for any format, or a QRCodeMultiReader for QR codes only,
+ * which is faster.
+ *
+ * DecoderThread delivers all the barcodes found in a frame at once.
+ *
+ * @see MultipleBarcodeCallback
+ * @see DefaultDecoderFactory#setDecodeMultiple(boolean)
+ */
+public class MultipleBarcodeDecoder extends Decoder {
+    private MultipleBarcodeReader multipleReader;
+    private Map<DecodeHintType, ?> hints;
+
+    /**
+     * @param reader         the reader, used by decode() for a single barcode, and reset after
+     *                       each decode. This is the delegate of a GenericMultipleBarcodeReader.
+     * @param multipleReader the reader finding multiple barcodes
+     * @param hints          the hints for multipleReader
+     */
+    public MultipleBarcodeDecoder(Reader reader, MultipleBarcodeReader multipleReader, Map<DecodeHintType, ?> hints) {
+        super(reader);
+        this.multipleReader = multipleReader;
+        this.hints = hints;
+    }
+
+    /**
+     * Given an image source, attempt to decode all the barcodes.
+     *
+     * Must not raise an exception, other than a CancellationException once the cancellation
+     * token is cancelled.
+     *
+     * @param source the image source
+     * @return the Results, empty if none were found
+     */
+    public List<Result> decodeMultiple(LuminanceSource source) {
+        return decodeMultiple(toBitmap(source));
+    }
+
+    /**
+     * Given an image source, attempt to decode all the barcodes, and record the time taken to
+     * binarize the image and to read the barcodes.
+     *
+     * @param source  the image source
+     * @param timings the timings to record, or null to skip recording
+     * @return the Results, empty if none were found
+     * @see Decoder#decode(LuminanceSource, DecodeTimings)
+     */
+    public List<Result> decodeMultiple(LuminanceSource source, DecodeTimings timings) {
+        if (timings == null) {
+            return decodeMultiple(source);
+        }
+        long start = System.nanoTime();
+        BinaryBitmap bitmap = toBitmap(source);
+        if (!binarize(bitmap, start, timings)) {
+            return Collections.emptyList();
+        }
+        checkCancelled();
+        long binarized = System.nanoTime();
+        List<Result> results = decodeMultiple(bitmap);
+        timings.addReadTime(System.nanoTime() - binarized);
+        return results;
+    }
+
+    /**
+     * Decode all the barcodes in a binary bitmap.
+     *
+     * @param bitmap the binary bitmap
+     * @return the Results, empty if none were found
+     */
+    protected List<Result> decodeMultiple(BinaryBitmap bitmap) {
+        clearPossibleResultPoints();
+        checkCancelled();
+        try {
+            return Arrays.asList(multipleReader.decodeMultiple(bitmap, hints));
+        } catch (Exception e) {
+            // Decode error, try again next frame
+            return Collections.emptyList();
+        } finally {
+            getReader().reset();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.journeyapps.barcodescanner;
+
+/**
+ * A fixed-size ring buffer of possible ResultPoints, stored as float coordinates.
+ *
+ * The decoder threads add points, and the view drawing them drains the buffer on every draw.
+ * Nothing is allocated after construction. When the buffer is full, the oldest points are
+ * overwritten.
+ *
+ * Thread-safe.
+ *
+ * @see BarcodeView#setResultPointBuffer(ResultPointBuffer)
+ * @see ViewfinderView#getResultPointBuffer()
+ */
+public final class ResultPointBuffer {
+    // x and y of each point.
+    private final float[] coordinates;
+    private final int capacity;
+
+    // Index of the oldest point, and number of points.
+    private int start = 0;
+    private int size = 0;
+
+    /**
+     * @param capacity the maximum number of points kept, at least 1
+     */
+    public ResultPointBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.coordinates = new float[2 * capacity];
+    }
+
+    /**
+     * @return the maximum number of points kept
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Add a point, overwriting the oldest one if the buffer is full.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    public synchronized void add(float x, float y) {
+        int index;
+        if (size < capacity) {
+            index = (start + size) % capacity;
+            size++;
+        } else {
+            index = start;
+            start = (start + 1) % capacity;
+        }
+        coordinates[2 * index] = x;
+        coordinates[2 * index + 1] = y;
+    }
+
+    /**
+     * Remove all the points, copying them from the oldest to the newest.
+     *
+     * @param out the coordinates of the points, x then y, at least 2 * capacity floats
+     * @return the number of points copied
+     */
+    public synchronized int drain(float[] out) {
+        int count = size;
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % capacity;
+            out[2 * i] = coordinates[2 * index];
+            out[2 * i + 1] = coordinates[2 * index + 1];
+        }
+        start = 0;
+        size = 0;
+        return count;
+    }
+
+    /**
+     * Remove all the points.
+     */
+    public synchronized void clear() {
+        start = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,157 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.LuminanceSource;
+
+import java.util.Arrays;
+
+/**
+ * Decides which preview frames to skip because the scene did not change since the last frame
+ * without a barcode, for example with a scanner mounted at a checkout, between two scans.
+ *
+ * Each frame is reduced to a signature: the average luminance of each cell of a 16 x 16 grid,
+ * sampled on about 64 x 64 points. A frame is skipped if the mean absolute difference between its
+ * signature and the signature of the last frame without a barcode is below a threshold. As soon
+ * as the scene moves, every frame is decoded again. Some frames in a row are decoded regardless,
+ * so that a slow change, such as lighting, is picked up eventually.
+ *
+ * Thread-safe.
+ */
+final class SceneChangeDetector {
+    /**
+     * Number of cells per side of the signature grid.
+     */
+    static final int GRID_SIZE = 16;
+
+    /**
+     * Number of samples per side of each cell.
+     */
+    private static final int SAMPLES_PER_CELL = 4;
+
+    static final int SIGNATURE_LENGTH = GRID_SIZE * GRID_SIZE;
+
+    /**
+     * Maximum number of frames skipped in a row, about a second at 30 frames per second.
+     */
+    static final int MAX_SKIPPED_IN_A_ROW = 30;
+
+    private final float threshold;
+
+    private final byte[] failedSignature = new byte[SIGNATURE_LENGTH];
+    private boolean hasFailedSignature = false;
+    private int skippedInARow = 0;
+
+    private long frameCount = 0;
+    private long skippedCount = 0;
+
+    /**
+     * @param threshold the mean absolute difference between signatures, in luminance levels,
+     *                  below which frames are skipped. Greater than 0.
+     */
+    SceneChangeDetector(float threshold) {
+        if (threshold <= 0 || threshold > 255) {
+            throw new IllegalArgumentException("Threshold must be in (0, 255]");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Call for every frame about to be decoded.
+     *
+     * @param signature the signature of the frame
+     * @return true if the frame should be decoded, false to skip it
+     * @see #signature(LuminanceSource, byte[])
+     */
+    synchronized boolean shouldDecode(byte[] signature) {
+        frameCount++;
+        if (hasFailedSignature && skippedInARow < MAX_SKIPPED_IN_A_ROW
+                && difference(signature, failedSignature) < threshold) {
+            skippedInARow++;
+            skippedCount++;
+            return false;
+        }
+        skippedInARow = 0;
+        return true;
+    }
+
+    /**
+     * Call when a frame is decoded.
+     *
+     * @param signature the signature of the frame
+     * @param found     true if a barcode was found in the frame
+     */
+    synchronized void decoded(byte[] signature, boolean found) {
+        if (found) {
+            // Keep decoding while the barcode is in view.
+            hasFailedSignature = false;
+        } else {
+            System.arraycopy(signature, 0, failedSignature, 0, SIGNATURE_LENGTH);
+            hasFailedSignature = true;
+        }
+    }
+
+    /**
+     * Forget the last frame without a barcode, for example when the crop rectangle changes.
+     */
+    synchronized void reset() {
+        hasFailedSignature = false;
+        skippedInARow = 0;
+    }
+
+    /**
+     * @return the fraction of frames skipped since this detector was created, between 0 and 1
+     */
+    synchronized float getSkipRatio() {
+        return frameCount == 0 ? 0 : skippedCount / (float) frameCount;
+    }
+
+    /**
+     * @param a a signature
+     * @param b another signature
+     * @return the mean absolute difference between the signatures, in luminance levels
+     */
+    static float difference(byte[] a, byte[] b) {
+        int sum = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            sum += Math.abs((a[i] & 0xff) - (b[i] & 0xff));
+        }
+        return sum / (float) SIGNATURE_LENGTH;
+    }
+
+    /**
+     * @param source the source, in any orientation, as long as it is the same for every frame
+     * @param out    the signature, SIGNATURE_LENGTH bytes
+     */
+    static void signature(LuminanceSource source, byte[] out) {
+        signature(source, out, new byte[source.getWidth()], new int[GRID_SIZE]);
+    }
+
+    /**
+     * Same as signature(LuminanceSource, byte[]), without allocating.
+     *
+     * @param source the source, in any orientation, as long as it is the same for every frame
+     * @param out    the signature, SIGNATURE_LENGTH bytes
+     * @param row    a row buffer, at least as wide as the source
+     * @param sums   a buffer for the sums of a row of cells, GRID_SIZE ints
+     */
+    static void signature(LuminanceSource source, byte[] out, byte[] row, int[] sums) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int samples = GRID_SIZE * SAMPLES_PER_CELL;
+
+        for (int cy = 0; cy < GRID_SIZE; cy++) {
+            Arrays.fill(sums, 0);
+            for (int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                int y = (2 * (cy * SAMPLES_PER_CELL + sy) + 1) * height / (2 * samples);
+                row = source.getRow(y, row);
+                for (int i = 0; i < samples; i++) {
+                    // The center of each sampled column.
+                    int x = (2 * i + 1) * width / (2 * samples);
+                    sums[i / SAMPLES_PER_CELL] += row[x] & 0xff;
+                }
+            }
+            for (int cx = 0; cx < GRID_SIZE; cx++) {
+                out[cy * GRID_SIZE + cx] = (byte) (sums[cx] / (SAMPLES_PER_CELL * SAMPLES_PER_CELL));
+            }
+        }
+    }
+}
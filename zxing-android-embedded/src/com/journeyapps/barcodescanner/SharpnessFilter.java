@@ -0,0 +1,64 @@
+package com.journeyapps.barcodescanner;
+
+/**
+ * Decides which preview frames are too blurry to decode, for example during an autofocus sweep.
+ *
+ * A frame is skipped if its sharpness is below a fraction of the recent peak sharpness. The peak
+ * decays slowly, so that the threshold follows changes of the scene, such as lighting. A few
+ * frames in a row are decoded regardless, so that a scene much less sharp than the previous one
+ * is never skipped for long.
+ *
+ * Thread-safe.
+ *
+ * @see SourceData#getSharpness()
+ */
+final class SharpnessFilter {
+    /**
+     * Decay of the peak sharpness per frame.
+     */
+    private static final float PEAK_DECAY = 0.98f;
+
+    /**
+     * Maximum number of frames skipped in a row.
+     */
+    static final int MAX_SKIPPED_IN_A_ROW = 5;
+
+    private final float threshold;
+
+    private float peak = 0;
+    private int skippedInARow = 0;
+
+    /**
+     * @param threshold the fraction of the peak sharpness below which frames are skipped, between
+     *                  0 and 1
+     */
+    SharpnessFilter(float threshold) {
+        if (threshold <= 0 || threshold >= 1) {
+            throw new IllegalArgumentException("Threshold must be in (0, 1)");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Call for every frame about to be decoded.
+     *
+     * @param sharpness the sharpness of the frame
+     * @return true if the frame should be decoded, false to skip it
+     */
+    synchronized boolean shouldDecode(float sharpness) {
+        peak = Math.max(peak * PEAK_DECAY, sharpness);
+        if (sharpness >= threshold * peak || skippedInARow >= MAX_SKIPPED_IN_A_ROW) {
+            skippedInARow = 0;
+            return true;
+        }
+        skippedInARow++;
+        return false;
+    }
+
+    /**
+     * @return the sharpness below which frames are currently skipped
+     */
+    synchronized float getThreshold() {
+        return threshold * peak;
+    }
+}
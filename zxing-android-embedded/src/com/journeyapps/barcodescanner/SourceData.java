@@ -2,11 +2,15 @@ package com.journeyapps.barcodescanner;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.ImageFormat;
 import android.graphics.Matrix;
 import android.graphics.Rect;
 import android.graphics.YuvImage;
 
+import com.google.zxing.LuminanceSource;
 import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ResultPoint;
+import com.journeyapps.barcodescanner.camera.PreviewBufferPool;
 
 import java.io.ByteArrayOutputStream;
 
@@ -14,6 +18,16 @@ import java.io.ByteArrayOutputStream;
  * Raw preview data from a camera.
  */
 public class SourceData {
+    /**
+     * Block size in pixels for the 90 and 270 degree rotations.
+     */
+    private static final int ROTATION_BLOCK_SIZE = 32;
+
+    /**
+     * Approximate number of samples per side for the sharpness estimate.
+     */
+    private static final int SHARPNESS_SAMPLES = 64;
+
     /**
      * Raw YUV data
      */
@@ -44,6 +58,22 @@ public class SourceData {
      */
     private Rect cropRect;
 
+    /**
+     * Time the data was received, as System.nanoTime().
+     */
+    private long timestamp;
+
+    /**
+     * Sharpness of sharpnessCropRect, or -1 if not computed yet.
+     */
+    private float sharpness = -1;
+    private Rect sharpnessCropRect;
+
+    /**
+     * Pool the data buffer belongs to, if the preview was delivered in a pooled buffer.
+     */
+    private PreviewBufferPool bufferPool;
+
     /**
      * @param data        the image data
      * @param dataWidth   width of the data
@@ -57,11 +87,164 @@ public class SourceData {
         this.dataHeight = dataHeight;
         this.rotation = rotation;
         this.imageFormat = imageFormat;
+        this.timestamp = System.nanoTime();
     }
 
     public SourceData(byte[] data, int rotation) {
         this.data = data;
         this.rotation = rotation;
+        this.timestamp = System.nanoTime();
+    }
+
+    /**
+     * @return the time the data was received, as System.nanoTime()
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Set the pool the data buffer belongs to. The buffer is returned to the pool with
+     * releaseBuffer().
+     *
+     * @param bufferPool the pool
+     */
+    public void setBufferPool(PreviewBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Return the data buffer to the camera for reuse, if it was delivered in a pooled buffer.
+     *
+     * The data must not be used after this. Only the first call to releaseBuffer() or
+     * retainBuffer() has an effect.
+     */
+    public void releaseBuffer() {
+        PreviewBufferPool pool = bufferPool;
+        bufferPool = null;
+        if (pool != null) {
+            pool.recycle(data);
+        }
+    }
+
+    /**
+     * Keep the data buffer, for example to create a bitmap later. If it was delivered in a pooled
+     * buffer, a new buffer is handed to the camera in its place.
+     *
+     * Only the first call to releaseBuffer() or retainBuffer() has an effect.
+     *
+     * @see #copyCropRect()
+     */
+    public void retainBuffer() {
+        PreviewBufferPool pool = bufferPool;
+        bufferPool = null;
+        if (pool != null) {
+            pool.replace();
+        }
+    }
+
+    /**
+     * Copy the data inside the crop rectangle to a new SourceData, for example to keep it in a
+     * BarcodeResult. Unlike retainBuffer(), the buffer can then be released, and only the crop
+     * rectangle is allocated instead of a full preview frame.
+     *
+     * The copy has the same rotation, timestamp and image format, and its crop rectangle covers
+     * the same pixels. Without a crop rectangle, the whole image is copied.
+     *
+     * @return the copy
+     */
+    public SourceData copyCropRect() {
+        boolean rotated = isRotated();
+        int displayWidth = rotated ? dataHeight : dataWidth;
+        int displayHeight = rotated ? dataWidth : dataHeight;
+        Rect crop = cropRect != null ? cropRect : new Rect(0, 0, displayWidth, displayHeight);
+
+        // The crop rectangle in camera orientation, as in createSensorSource().
+        int left;
+        int top;
+        switch (rotation) {
+            case 90:
+                left = crop.top;
+                top = dataHeight - crop.right;
+                break;
+            case 180:
+                left = dataWidth - crop.right;
+                top = dataHeight - crop.bottom;
+                break;
+            case 270:
+                left = dataWidth - crop.bottom;
+                top = crop.left;
+                break;
+            default:
+                left = crop.left;
+                top = crop.top;
+                break;
+        }
+        int right = left + (rotated ? crop.height() : crop.width());
+        int bottom = top + (rotated ? crop.width() : crop.height());
+
+        // Chroma is subsampled by 2, so copy from even coordinates.
+        int copyLeft = left & ~1;
+        int copyTop = top & ~1;
+        int copyWidth = Math.min(dataWidth, (right + 1) & ~1) - copyLeft;
+        int copyHeight = Math.min(dataHeight, (bottom + 1) & ~1) - copyTop;
+
+        byte[] copy;
+        if (imageFormat == ImageFormat.YUY2) {
+            // Interleaved, two bytes per pixel.
+            copy = new byte[copyWidth * copyHeight * 2];
+            for (int y = 0; y < copyHeight; y++) {
+                System.arraycopy(data, ((copyTop + y) * dataWidth + copyLeft) * 2, copy, y * copyWidth * 2, copyWidth * 2);
+            }
+        } else {
+            // NV21: the luminance plane, then interleaved V and U at half the resolution.
+            int chromaHeight = (copyHeight + 1) / 2;
+            copy = new byte[copyWidth * (copyHeight + chromaHeight)];
+            for (int y = 0; y < copyHeight; y++) {
+                System.arraycopy(data, (copyTop + y) * dataWidth + copyLeft, copy, y * copyWidth, copyWidth);
+            }
+            int chromaOffset = dataWidth * dataHeight;
+            int copyChromaOffset = copyWidth * copyHeight;
+            for (int y = 0; y < chromaHeight; y++) {
+                int from = chromaOffset + (copyTop / 2 + y) * dataWidth + copyLeft;
+                int length = Math.min(copyWidth, data.length - from);
+                if (length > 0) {
+                    System.arraycopy(data, from, copy, copyChromaOffset + y * copyWidth, length);
+                }
+            }
+        }
+
+        // Back to display orientation, relative to the copy.
+        int sensorLeft = left - copyLeft;
+        int sensorTop = top - copyTop;
+        Rect copyCrop;
+        switch (rotation) {
+            case 90:
+                copyCrop = new Rect(copyHeight - sensorTop - crop.width(), sensorLeft,
+                        copyHeight - sensorTop, sensorLeft + crop.height());
+                break;
+            case 180:
+                copyCrop = new Rect(copyWidth - sensorLeft - crop.width(), copyHeight - sensorTop - crop.height(),
+                        copyWidth - sensorLeft, copyHeight - sensorTop);
+                break;
+            case 270:
+                copyCrop = new Rect(sensorTop, copyWidth - sensorLeft - crop.height(),
+                        sensorTop + crop.width(), copyWidth - sensorLeft);
+                break;
+            default:
+                copyCrop = new Rect(sensorLeft, sensorTop, sensorLeft + crop.width(), sensorTop + crop.height());
+                break;
+        }
+
+        SourceData sourceData = new SourceData(copy, copyWidth, copyHeight, imageFormat, rotation);
+        sourceData.timestamp = timestamp;
+        sourceData.cropRect = copyCrop;
+        if (hasSharpness()) {
+            // Same pixels.
+            sourceData.sharpness = sharpness;
+            sourceData.sharpnessCropRect = copyCrop;
+        }
+        return sourceData;
     }
 
     public Rect getCropRect() {
@@ -77,6 +260,88 @@ public class SourceData {
         this.cropRect = cropRect;
     }
 
+    /**
+     * Estimate the sharpness of the crop rectangle, as the variance of the Laplacian of the
+     * luminance on a grid of about 64 x 64 points. Blurry images, for example while the camera is
+     * focusing, have a low sharpness.
+     *
+     * The value depends on the contrast of the scene, so only compare it between frames of the same
+     * scene. It is computed on the first call, and again if the crop rectangle changes. Without a
+     * crop rectangle, the whole image is used. With a sharpness threshold, DecoderThread sets the
+     * value its decision was based on, so it is not computed again.
+     *
+     * @return the sharpness, 0 for a uniform image
+     * @see DecoderThread#setSharpnessThreshold(float)
+     */
+    public float getSharpness() {
+        if (!hasSharpness()) {
+            // The estimate does not depend on the orientation, so skip rotating.
+            LuminanceSource source = cropRect == null
+                    ? new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, 0, 0, dataWidth, dataHeight, false)
+                    : createSensorSource();
+            setSharpness(sharpness(source));
+        }
+        return sharpness;
+    }
+
+    /**
+     * @param sharpness the sharpness of the current crop rectangle, as computed by
+     *                  sharpness(LuminanceSource)
+     */
+    void setSharpness(float sharpness) {
+        this.sharpness = sharpness;
+        this.sharpnessCropRect = cropRect;
+    }
+
+    private boolean hasSharpness() {
+        return sharpness >= 0 && (cropRect == null ? sharpnessCropRect == null : cropRect.equals(sharpnessCropRect));
+    }
+
+    /**
+     * @param source the source, in any orientation
+     * @return the variance of the Laplacian of the luminance, on a subsampled grid
+     */
+    static float sharpness(LuminanceSource source) {
+        int width = source.getWidth();
+        return sharpness(source, new byte[width], new byte[width], new byte[width]);
+    }
+
+    /**
+     * Same as sharpness(LuminanceSource), without allocating.
+     *
+     * @param source the source, in any orientation
+     * @param above  a row buffer, at least as wide as the source
+     * @param row    a row buffer, at least as wide as the source
+     * @param below  a row buffer, at least as wide as the source
+     * @return the variance of the Laplacian of the luminance, on a subsampled grid
+     */
+    static float sharpness(LuminanceSource source, byte[] above, byte[] row, byte[] below) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width < 3 || height < 3) {
+            return 0;
+        }
+        int step = Math.max(1, Math.min(width, height) / SHARPNESS_SAMPLES);
+
+        long sum = 0;
+        long sumOfSquares = 0;
+        int count = 0;
+        for (int y = 1; y < height - 1; y += step) {
+            above = source.getRow(y - 1, above);
+            row = source.getRow(y, row);
+            below = source.getRow(y + 1, below);
+            for (int x = 1; x < width - 1; x += step) {
+                int laplacian = 4 * (row[x] & 0xff) - (row[x - 1] & 0xff) - (row[x + 1] & 0xff)
+                        - (above[x] & 0xff) - (below[x] & 0xff);
+                sum += laplacian;
+                sumOfSquares += laplacian * laplacian;
+                count++;
+            }
+        }
+        float mean = sum / (float) count;
+        return Math.max(0, sumOfSquares / (float) count - mean * mean);
+    }
+
     public byte[] getData() {
         return data;
     }
@@ -111,14 +376,123 @@ public class SourceData {
     }
 
     public PlanarYUVLuminanceSource createSource() {
-        byte[] rotated = rotateCameraPreview(rotation, data, dataWidth, dataHeight);
         // TODO: handle mirrored (front) camera. Probably only the ResultPoints should be mirrored,
         // not the preview for decoding.
-        if (isRotated()) {
-            //noinspection SuspiciousNameCombination
-            return new PlanarYUVLuminanceSource(rotated, dataHeight, dataWidth, cropRect.left, cropRect.top, cropRect.width(), cropRect.height(), false);
+        if (rotation == 0) {
+            return new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, cropRect.left, cropRect.top, cropRect.width(), cropRect.height(), false);
         } else {
-            return new PlanarYUVLuminanceSource(rotated, dataWidth, dataHeight, cropRect.left, cropRect.top, cropRect.width(), cropRect.height(), false);
+            // Only rotate the part of the image inside the crop rectangle.
+            int width = cropRect.width();
+            int height = cropRect.height();
+            byte[] rotated = rotateCameraPreview(rotation, data, dataWidth, dataHeight, cropRect.left, cropRect.top, width, height);
+            return new PlanarYUVLuminanceSource(rotated, width, height, 0, 0, width, height, false);
+        }
+    }
+
+    /**
+     * Create a source for the crop rectangle in camera orientation, without rotating or copying
+     * the data.
+     *
+     * Only suitable for formats that can be decoded in any orientation. ResultPoints found in
+     * this source must be translated with translateResultPoint() to match createSource().
+     *
+     * @return the source, in camera orientation
+     */
+    public PlanarYUVLuminanceSource createSensorSource() {
+        return createSensorSource(data, dataWidth, dataHeight, rotation, cropRect.left, cropRect.top, cropRect.width(), cropRect.height());
+    }
+
+    /**
+     * @param data        the image data
+     * @param dataWidth   width of the data
+     * @param dataHeight  height of the data
+     * @param rotation    camera rotation relative to display rotation, in degrees (0, 90, 180 or 270)
+     * @param left        left of the crop rectangle, in display orientation
+     * @param top         top of the crop rectangle, in display orientation
+     * @param width       width of the crop rectangle, in display orientation
+     * @param height      height of the crop rectangle, in display orientation
+     * @return the source for the crop rectangle, in camera orientation
+     */
+    static PlanarYUVLuminanceSource createSensorSource(byte[] data, int dataWidth, int dataHeight, int rotation,
+                                                       int left, int top, int width, int height) {
+        switch (rotation) {
+            case 90:
+                //noinspection SuspiciousNameCombination
+                return new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, top, dataHeight - left - width, height, width, false);
+            case 180:
+                return new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, dataWidth - left - width, dataHeight - top - height, width, height, false);
+            case 270:
+                //noinspection SuspiciousNameCombination
+                return new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, dataWidth - top - height, left, height, width, false);
+            default:
+                return new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, left, top, width, height, false);
+        }
+    }
+
+    /**
+     * Translate a ResultPoint found in the source from createSensorSource() to the display
+     * orientation of createSource().
+     *
+     * @param point the point, relative to the crop rectangle in camera orientation
+     * @return the point, relative to the crop rectangle in display orientation
+     */
+    public ResultPoint translateResultPoint(ResultPoint point) {
+        return translateResultPoint(rotation, cropRect.width(), cropRect.height(), point);
+    }
+
+    /**
+     * @param rotation camera rotation relative to display rotation, in degrees (0, 90, 180 or 270)
+     * @param width    width of the crop rectangle, in display orientation
+     * @param height   height of the crop rectangle, in display orientation
+     * @param point    the point, relative to the crop rectangle in camera orientation
+     * @return the point, relative to the crop rectangle in display orientation
+     */
+    static ResultPoint translateResultPoint(int rotation, int width, int height, ResultPoint point) {
+        if (rotation == 0) {
+            return point;
+        }
+        float x = point.getX();
+        float y = point.getY();
+        return new ResultPoint(translateX(rotation, width, x, y), translateY(rotation, height, x, y));
+    }
+
+    /**
+     * @param rotation camera rotation relative to display rotation, in degrees (0, 90, 180 or 270)
+     * @param width    width of the crop rectangle, in display orientation
+     * @param x        x of the point, relative to the crop rectangle in camera orientation
+     * @param y        y of the point, relative to the crop rectangle in camera orientation
+     * @return x of the point, relative to the crop rectangle in display orientation
+     */
+    static float translateX(int rotation, int width, float x, float y) {
+        switch (rotation) {
+            case 90:
+                return width - y;
+            case 180:
+                return width - x;
+            case 270:
+                return y;
+            default:
+                return x;
+        }
+    }
+
+    /**
+     * @param rotation camera rotation relative to display rotation, in degrees (0, 90, 180 or 270)
+     * @param height   height of the crop rectangle, in display orientation
+     * @param x        x of the point, relative to the crop rectangle in camera orientation
+     * @param y        y of the point, relative to the crop rectangle in camera orientation
+     * @return y of the point, relative to the crop rectangle in display orientation
+     */
+    static float translateY(int rotation, int height, float x, float y) {
+        switch (rotation) {
+            case 90:
+                return x;
+            case 180:
+                return height - y;
+            case 270:
+                return height - x;
+            default:
+                return y;
         }
     }
 
@@ -183,6 +557,122 @@ public class SourceData {
         }
     }
 
+    /**
+     * Rotate the camera preview to display orientation, without allocating.
+     *
+     * @param cameraRotation camera rotation relative to display rotation, in degrees (0, 90, 180 or 270)
+     * @param data           the image data, with the first width * height bytes being the luminance data.
+     * @param imageWidth     the width of the image, in camera orientation
+     * @param imageHeight    the height of the image, in camera orientation
+     * @param dest           buffer for the rotated luminance data, at least width * height bytes
+     * @return dest, or data if no rotation is required
+     */
+    public static byte[] rotateCameraPreview(int cameraRotation, byte[] data, int imageWidth, int imageHeight, byte[] dest) {
+        switch (cameraRotation) {
+            case 90:
+                return rotateCW(data, imageWidth, imageHeight, dest);
+            case 180:
+                return rotate180(data, imageWidth, imageHeight, dest);
+            case 270:
+                return rotateCCW(data, imageWidth, imageHeight, dest);
+            default:
+                return data;
+        }
+    }
+
+    /**
+     * Rotate a region of the camera preview to display orientation.
+     *
+     * The region is specified in display orientation, and only the region is copied. The result
+     * is the same as cropping the output of rotateCameraPreview(cameraRotation, data, imageWidth, imageHeight).
+     *
+     * @param cameraRotation camera rotation relative to display rotation, in degrees (0, 90, 180 or 270)
+     * @param data           the image data, with the first width * height bytes being the luminance data.
+     * @param imageWidth     the width of the image, in camera orientation
+     * @param imageHeight    the height of the image, in camera orientation
+     * @param left           left of the region, in display orientation
+     * @param top            top of the region, in display orientation
+     * @param width          width of the region, in display orientation
+     * @param height         height of the region, in display orientation
+     * @return the rotated region, width * height bytes
+     */
+    public static byte[] rotateCameraPreview(int cameraRotation, byte[] data, int imageWidth, int imageHeight,
+                                             int left, int top, int width, int height) {
+        return rotateCameraPreview(cameraRotation, data, imageWidth, imageHeight, left, top, width, height, new byte[width * height]);
+    }
+
+    /**
+     * Rotate a region of the camera preview to display orientation, without allocating.
+     *
+     * The 90 and 270 degree rotations are done in square blocks, so that the rows of the source
+     * being read stay in cache while the destination is written sequentially.
+     *
+     * @param cameraRotation camera rotation relative to display rotation, in degrees (0, 90, 180 or 270)
+     * @param data           the image data, with the first width * height bytes being the luminance data.
+     * @param imageWidth     the width of the image, in camera orientation
+     * @param imageHeight    the height of the image, in camera orientation
+     * @param left           left of the region, in display orientation
+     * @param top            top of the region, in display orientation
+     * @param width          width of the region, in display orientation
+     * @param height         height of the region, in display orientation
+     * @param dest           buffer for the rotated region, at least width * height bytes
+     * @return dest
+     */
+    public static byte[] rotateCameraPreview(int cameraRotation, byte[] data, int imageWidth, int imageHeight,
+                                             int left, int top, int width, int height, byte[] dest) {
+        switch (cameraRotation) {
+            case 90:
+                // Display pixel (x, y) is camera pixel (y, imageHeight - 1 - x).
+                for (int by = 0; by < height; by += ROTATION_BLOCK_SIZE) {
+                    int yEnd = Math.min(by + ROTATION_BLOCK_SIZE, height);
+                    for (int bx = 0; bx < width; bx += ROTATION_BLOCK_SIZE) {
+                        int xEnd = Math.min(bx + ROTATION_BLOCK_SIZE, width);
+                        for (int y = by; y < yEnd; y++) {
+                            int i = y * width + bx;
+                            int p = (imageHeight - 1 - left - bx) * imageWidth + top + y;
+                            for (int x = bx; x < xEnd; x++) {
+                                dest[i++] = data[p];
+                                p -= imageWidth;
+                            }
+                        }
+                    }
+                }
+                break;
+            case 180:
+                // Display pixel (x, y) is camera pixel (imageWidth - 1 - x, imageHeight - 1 - y).
+                for (int y = 0, i = 0; y < height; y++) {
+                    int p = (imageHeight - 1 - top - y) * imageWidth + imageWidth - 1 - left;
+                    for (int x = 0; x < width; x++) {
+                        dest[i++] = data[p--];
+                    }
+                }
+                break;
+            case 270:
+                // Display pixel (x, y) is camera pixel (imageWidth - 1 - y, x).
+                for (int by = 0; by < height; by += ROTATION_BLOCK_SIZE) {
+                    int yEnd = Math.min(by + ROTATION_BLOCK_SIZE, height);
+                    for (int bx = 0; bx < width; bx += ROTATION_BLOCK_SIZE) {
+                        int xEnd = Math.min(bx + ROTATION_BLOCK_SIZE, width);
+                        for (int y = by; y < yEnd; y++) {
+                            int i = y * width + bx;
+                            int p = (left + bx) * imageWidth + imageWidth - 1 - top - y;
+                            for (int x = bx; x < xEnd; x++) {
+                                dest[i++] = data[p];
+                                p += imageWidth;
+                            }
+                        }
+                    }
+                }
+                break;
+            default:
+                for (int y = 0; y < height; y++) {
+                    System.arraycopy(data, (top + y) * imageWidth + left, dest, y * width, width);
+                }
+                break;
+        }
+        return dest;
+    }
+
     /**
      * Rotate an image by 90 degrees CW.
      *
@@ -192,18 +682,21 @@ public class SourceData {
      * @return the rotated bytes
      */
     public static byte[] rotateCW(byte[] data, int imageWidth, int imageHeight) {
-        // Adapted from http://stackoverflow.com/a/15775173
-        // data may contain more than just y (u and v), but we are only interested in the y section.
-
-        byte[] yuv = new byte[imageWidth * imageHeight];
-        int i = 0;
-        for (int x = 0; x < imageWidth; x++) {
-            for (int y = imageHeight - 1; y >= 0; y--) {
-                yuv[i] = data[y * imageWidth + x];
-                i++;
-            }
-        }
-        return yuv;
+        return rotateCW(data, imageWidth, imageHeight, new byte[imageWidth * imageHeight]);
+    }
+
+    /**
+     * Rotate an image by 90 degrees CW, without allocating.
+     *
+     * @param data        the image data, in with the first width * height bytes being the luminance data.
+     * @param imageWidth  the width of the image
+     * @param imageHeight the height of the image
+     * @param dest        buffer for the rotated bytes, at least width * height bytes
+     * @return dest
+     */
+    public static byte[] rotateCW(byte[] data, int imageWidth, int imageHeight, byte[] dest) {
+        //noinspection SuspiciousNameCombination
+        return rotateCameraPreview(90, data, imageWidth, imageHeight, 0, 0, imageHeight, imageWidth, dest);
     }
 
     /**
@@ -215,15 +708,26 @@ public class SourceData {
      * @return the rotated bytes
      */
     public static byte[] rotate180(byte[] data, int imageWidth, int imageHeight) {
-        int n = imageWidth * imageHeight;
-        byte[] yuv = new byte[n];
+        return rotate180(data, imageWidth, imageHeight, new byte[imageWidth * imageHeight]);
+    }
 
+    /**
+     * Rotate an image by 180 degrees, without allocating.
+     *
+     * @param data        the image data, in with the first width * height bytes being the luminance data.
+     * @param imageWidth  the width of the image
+     * @param imageHeight the height of the image
+     * @param dest        buffer for the rotated bytes, at least width * height bytes
+     * @return dest
+     */
+    public static byte[] rotate180(byte[] data, int imageWidth, int imageHeight, byte[] dest) {
+        int n = imageWidth * imageHeight;
         int i = n - 1;
         for (int j = 0; j < n; j++) {
-            yuv[i] = data[j];
+            dest[i] = data[j];
             i--;
         }
-        return yuv;
+        return dest;
     }
 
     /**
@@ -235,15 +739,20 @@ public class SourceData {
      * @return the rotated bytes
      */
     public static byte[] rotateCCW(byte[] data, int imageWidth, int imageHeight) {
-        int n = imageWidth * imageHeight;
-        byte[] yuv = new byte[n];
-        int i = n - 1;
-        for (int x = 0; x < imageWidth; x++) {
-            for (int y = imageHeight - 1; y >= 0; y--) {
-                yuv[i] = data[y * imageWidth + x];
-                i--;
-            }
-        }
-        return yuv;
+        return rotateCCW(data, imageWidth, imageHeight, new byte[imageWidth * imageHeight]);
+    }
+
+    /**
+     * Rotate an image by 90 degrees CCW, without allocating.
+     *
+     * @param data        the image data, in with the first width * height bytes being the luminance data.
+     * @param imageWidth  the width of the image
+     * @param imageHeight the height of the image
+     * @param dest        buffer for the rotated bytes, at least width * height bytes
+     * @return dest
+     */
+    public static byte[] rotateCCW(byte[] data, int imageWidth, int imageHeight, byte[] dest) {
+        //noinspection SuspiciousNameCombination
+        return rotateCameraPreview(270, data, imageWidth, imageHeight, 0, 0, imageHeight, imageWidth, dest);
     }
 }
@@ -0,0 +1,377 @@
+package com.journeyapps.barcodescanner;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.Result;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Decodes barcodes in still images, such as photos from the gallery or scanned documents, on a
+ * background thread.
+ *
+ * The size of the image is read first, without decoding the pixels. The image is then decoded at
+ * a ladder of sample sizes, from the smallest image to the largest, stopping at the first level
+ * with a barcode. Large barcodes are found quickly in a small image, and small barcodes still get
+ * the full resolution, up to a maximum number of pixels.
+ *
+ * Results are delivered on the main thread. ResultPoints are relative to the full size image.
+ * The BarcodeResults have no source data, so BarcodeResult.getBitmap() returns null.
+ *
+ * Use a DecoderFactory decoding all the formats in a single call, for example without format
+ * scheduling.
+ */
+public class StillImageDecoder {
+    private static final String TAG = StillImageDecoder.class.getSimpleName();
+
+    /**
+     * Receives the outcome of decoding an image, on the main thread. Exactly one method is called
+     * per image, unless decoding was cancelled.
+     */
+    public interface Callback {
+        /**
+         * @param result the barcode found
+         */
+        void barcodeResult(BarcodeResult result);
+
+        /**
+         * No barcode was found at any level of the ladder.
+         */
+        void barcodeNotFound();
+
+        /**
+         * @param error the error reading the image
+         */
+        void decodeFailed(Exception error);
+    }
+
+    /**
+     * The first level of the ladder is the smallest with at least this many pixels on its
+     * longest side.
+     */
+    private static final int MIN_LONG_SIDE = 640;
+
+    private static Executor defaultExecutor;
+
+    private final ContentResolver contentResolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private DecoderFactory decoderFactory;
+    private Executor executor;
+    private int maxPixels = 4000000;
+
+    /**
+     * Create a StillImageDecoder with a DefaultDecoderFactory.
+     *
+     * @param context the context, to open URIs
+     */
+    public StillImageDecoder(Context context) {
+        this(context, new DefaultDecoderFactory());
+    }
+
+    /**
+     * @param context        the context, to open URIs
+     * @param decoderFactory the factory for the decoder of each image. TRY_HARDER is added to
+     *                       the hints.
+     */
+    public StillImageDecoder(Context context, DecoderFactory decoderFactory) {
+        this.contentResolver = context.getContentResolver();
+        this.decoderFactory = decoderFactory;
+    }
+
+    public DecoderFactory getDecoderFactory() {
+        return decoderFactory;
+    }
+
+    /**
+     * Takes effect for the next image.
+     *
+     * @param decoderFactory the factory for the decoder of each image
+     */
+    public void setDecoderFactory(DecoderFactory decoderFactory) {
+        this.decoderFactory = decoderFactory;
+    }
+
+    /**
+     * Default to a single background thread, shared by all the StillImageDecoders.
+     *
+     * @return the executor decoding the images
+     */
+    public synchronized Executor getExecutor() {
+        if (executor == null) {
+            executor = getDefaultExecutor();
+        }
+        return executor;
+    }
+
+    /**
+     * @param executor the executor decoding the images
+     */
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    // Do not compete with the UI and the preview decoding.
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Default to 4000000.
+     *
+     * @return the maximum number of pixels of the largest level of the ladder
+     */
+    public int getMaxPixels() {
+        return maxPixels;
+    }
+
+    /**
+     * Limit the memory used for large images. An image with more pixels is never decoded at full
+     * resolution.
+     *
+     * @param maxPixels the maximum number of pixels, at least MIN_LONG_SIDE squared
+     */
+    public void setMaxPixels(int maxPixels) {
+        if (maxPixels < MIN_LONG_SIDE * MIN_LONG_SIDE) {
+            throw new IllegalArgumentException("At least " + MIN_LONG_SIDE * MIN_LONG_SIDE + " pixels are required");
+        }
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Decode an image file.
+     *
+     * @param file     the file, in any format supported by BitmapFactory
+     * @param callback the callback, called on the main thread
+     * @return a token to cancel decoding
+     */
+    public CancellationToken decode(final File file, Callback callback) {
+        return decode(new Image() {
+            @Override
+            public Bitmap decode(BitmapFactory.Options options) throws IOException {
+                if (!file.canRead()) {
+                    throw new FileNotFoundException(file.getPath());
+                }
+                return BitmapFactory.decodeFile(file.getPath(), options);
+            }
+        }, callback);
+    }
+
+    /**
+     * Decode an image from a content or file URI, for example from the gallery.
+     *
+     * @param uri      the URI, opened with the ContentResolver
+     * @param callback the callback, called on the main thread
+     * @return a token to cancel decoding
+     */
+    public CancellationToken decode(final Uri uri, Callback callback) {
+        return decode(new Image() {
+            @Override
+            public Bitmap decode(BitmapFactory.Options options) throws IOException {
+                InputStream input = contentResolver.openInputStream(uri);
+                if (input == null) {
+                    throw new FileNotFoundException(uri.toString());
+                }
+                try {
+                    return BitmapFactory.decodeStream(input, null, options);
+                } finally {
+                    input.close();
+                }
+            }
+        }, callback);
+    }
+
+    /**
+     * Decode an encoded image, for example a JPEG or PNG.
+     *
+     * @param data     the encoded image. Must not be modified until the callback is called.
+     * @param callback the callback, called on the main thread
+     * @return a token to cancel decoding
+     */
+    public CancellationToken decode(final byte[] data, Callback callback) {
+        return decode(new Image() {
+            @Override
+            public Bitmap decode(BitmapFactory.Options options) {
+                return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            }
+        }, callback);
+    }
+
+    /**
+     * An encoded image, that can be decoded more than once.
+     */
+    private interface Image {
+        Bitmap decode(BitmapFactory.Options options) throws IOException;
+    }
+
+    private CancellationToken decode(final Image image, final Callback callback) {
+        final CancellationToken token = new CancellationToken();
+        final Decoder decoder = createDecoder();
+        final int maxPixels = this.maxPixels;
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (token.isCancelled()) {
+                    return;
+                }
+                try {
+                    final Result result = decodeLadder(image, decoder, maxPixels, token);
+                    deliver(token, new Runnable() {
+                        @Override
+                        public void run() {
+                            if (result != null) {
+                                callback.barcodeResult(new BarcodeResult(result, null));
+                            } else {
+                                callback.barcodeNotFound();
+                            }
+                        }
+                    });
+                } catch (CancellationException e) {
+                    // Nothing to deliver.
+                } catch (final Exception e) {
+                    Log.w(TAG, "Failed to decode image", e);
+                    deliver(token, new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.decodeFailed(e);
+                        }
+                    });
+                }
+            }
+        });
+        return token;
+    }
+
+    private Decoder createDecoder() {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        // A single image is worth the extra time.
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        return decoderFactory.createDecoder(hints);
+    }
+
+    private void deliver(final CancellationToken token, final Runnable runnable) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // Cancelled while waiting for the main thread.
+                if (!token.isCancelled()) {
+                    runnable.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the result, with ResultPoints relative to the full size image, or null
+     */
+    private static Result decodeLadder(Image image, Decoder decoder, int maxPixels, CancellationToken token) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        image.decode(bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unsupported image format");
+        }
+
+        decoder.setCancellationToken(token);
+        for (int sampleSize : sampleSizes(bounds.outWidth, bounds.outHeight, maxPixels)) {
+            token.throwIfCancelled();
+            long start = SystemClock.elapsedRealtime();
+            LuminanceSource source;
+            try {
+                source = luminanceSource(image, sampleSize);
+            } catch (OutOfMemoryError e) {
+                // The next levels are larger still.
+                Log.w(TAG, "Out of memory decoding an image at sample size " + sampleSize);
+                return null;
+            }
+            if (source == null) {
+                throw new IOException("Cannot decode image");
+            }
+            Result result = decoder.decode(new CancellableLuminanceSource(source, token));
+            Log.d(TAG, "Sample size " + sampleSize + ": " + (result != null ? "found" : "not found")
+                    + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+            if (result != null) {
+                return sampleSize == 1 ? result : PyramidDecoder.scaleResult(result, sampleSize);
+            }
+        }
+        return null;
+    }
+
+    private static LuminanceSource luminanceSource(Image image, int sampleSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap bitmap = image.decode(options);
+        if (bitmap == null) {
+            return null;
+        }
+        try {
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            int[] pixels = new int[width * height];
+            bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+            return new RGBLuminanceSource(width, height, pixels);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * The ladder of sample sizes, from the smallest image to the largest. Each level has twice
+     * the resolution of the previous one.
+     *
+     * @param width     the width of the image
+     * @param height    the height of the image
+     * @param maxPixels the maximum number of pixels of a level
+     * @return the sample sizes, powers of 2 in decreasing order
+     */
+    static List<Integer> sampleSizes(int width, int height, int maxPixels) {
+        // The largest level within maxPixels.
+        int smallest = 1;
+        while ((long) (width / smallest) * (height / smallest) > maxPixels) {
+            smallest *= 2;
+        }
+        // The smallest level still large enough to read a barcode.
+        int largest = smallest;
+        while (Math.max(width, height) / (largest * 2) >= MIN_LONG_SIDE) {
+            largest *= 2;
+        }
+        List<Integer> sampleSizes = new ArrayList<>();
+        for (int sampleSize = largest; sampleSize >= smallest; sampleSize /= 2) {
+            sampleSizes.add(sampleSize);
+        }
+        return sampleSizes;
+    }
+}
@@ -57,6 +57,11 @@ public class ViewfinderView extends View {
     protected int scannerAlpha;
     protected List<ResultPoint> possibleResultPoints;
     protected List<ResultPoint> lastPossibleResultPoints;
+    protected final ResultPointBuffer resultPointBuffer = new ResultPointBuffer(MAX_RESULT_POINTS);
+    // Coordinates of the points drained from the buffer, x then y, reused for every draw.
+    protected float[] resultPointCoordinates = new float[2 * MAX_RESULT_POINTS];
+    protected float[] lastResultPointCoordinates = new float[2 * MAX_RESULT_POINTS];
+    protected int lastResultPointCount = 0;
     protected CameraPreview cameraPreview;
 
     // Cache the framingRect and previewFramingRect, so that we can still draw it after the preview
@@ -175,7 +180,7 @@ public class ViewfinderView extends View {
             final int frameTop = frame.top;
 
             // draw the last possible result points
-            if (!lastPossibleResultPoints.isEmpty()) {
+            if (!lastPossibleResultPoints.isEmpty() || lastResultPointCount > 0) {
                 paint.setAlpha(CURRENT_POINT_OPACITY / 2);
                 paint.setColor(resultPointColor);
                 float radius = POINT_SIZE / 2.0f;
@@ -186,11 +191,20 @@ public class ViewfinderView extends View {
                             radius, paint
                     );
                 }
+                for (int i = 0; i < lastResultPointCount; i++) {
+                    canvas.drawCircle(
+                            frameLeft + (int) (lastResultPointCoordinates[2 * i] * scaleX),
+                            frameTop + (int) (lastResultPointCoordinates[2 * i + 1] * scaleY),
+                            radius, paint
+                    );
+                }
                 lastPossibleResultPoints.clear();
+                lastResultPointCount = 0;
             }
 
-            // draw current possible result points
-            if (!possibleResultPoints.isEmpty()) {
+            // draw current possible result points, added since the last draw
+            int resultPointCount = resultPointBuffer.drain(resultPointCoordinates);
+            if (!possibleResultPoints.isEmpty() || resultPointCount > 0) {
                 paint.setAlpha(CURRENT_POINT_OPACITY);
                 paint.setColor(resultPointColor);
                 for (final ResultPoint point : possibleResultPoints) {
@@ -200,12 +214,24 @@ public class ViewfinderView extends View {
                             POINT_SIZE, paint
                     );
                 }
+                for (int i = 0; i < resultPointCount; i++) {
+                    canvas.drawCircle(
+                            frameLeft + (int) (resultPointCoordinates[2 * i] * scaleX),
+                            frameTop + (int) (resultPointCoordinates[2 * i + 1] * scaleY),
+                            POINT_SIZE, paint
+                    );
+                }
 
                 // swap and clear buffers
                 final List<ResultPoint> temp = possibleResultPoints;
                 possibleResultPoints = lastPossibleResultPoints;
                 lastPossibleResultPoints = temp;
                 possibleResultPoints.clear();
+
+                final float[] tempCoordinates = resultPointCoordinates;
+                resultPointCoordinates = lastResultPointCoordinates;
+                lastResultPointCoordinates = tempCoordinates;
+                lastResultPointCount = resultPointCount;
             }
 
             // Request another update at the animation interval, but only repaint the laser line,
@@ -237,10 +263,22 @@ public class ViewfinderView extends View {
         invalidate();
     }
 
+    /**
+     * May be called from any thread. The points added are drawn on the next draw, without
+     * allocating.
+     *
+     * @return the buffer of points to draw, relative to the preview frame
+     * @see BarcodeView#setResultPointBuffer(ResultPointBuffer)
+     */
+    public ResultPointBuffer getResultPointBuffer() {
+        return resultPointBuffer;
+    }
+
     /**
      * Only call from the UI thread.
      *
      * @param point a point to draw, relative to the preview frame
+     * @see #getResultPointBuffer()
      */
     public void addPossibleResultPoint(ResultPoint point) {
         if (possibleResultPoints.size() < MAX_RESULT_POINTS)
@@ -15,7 +15,7 @@ import java.io.File;
  *
  * All methods must be called from the main thread.
  */
-public class CameraInstance {
+public class CameraInstance implements FrameSource {
     private static final String TAG = CameraInstance.class.getSimpleName();
 
     private CameraThread cameraThread;
@@ -121,6 +121,17 @@ public class CameraInstance {
         return cameraManager.getCamera();
     }
 
+    /**
+     * May be called from any thread.
+     *
+     * @return the pool of preview buffers used by the current or last preview, or null if preview
+     *    buffers are not used
+     * @see CameraSettings#setPreviewBufferCount(int)
+     */
+    public PreviewBufferPool getPreviewBufferPool() {
+        return cameraManager.getPreviewBufferPool();
+    }
+
     public void open() {
         Util.validateMainThread();
 
@@ -157,6 +168,25 @@ public class CameraInstance {
         }
     }
 
+    /**
+     * Make the preview brighter or darker.
+     *
+     * @param brighter true to make the preview brighter, false to make it darker
+     * @see CameraManager#adjustExposure(boolean)
+     */
+    public void adjustExposure(final boolean brighter) {
+        Util.validateMainThread();
+
+        if (open) {
+            cameraThread.enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    cameraManager.adjustExposure(brighter);
+                }
+            });
+        }
+    }
+
     public void close() {
         Util.validateMainThread();
 
@@ -169,6 +199,7 @@ public class CameraInstance {
         open = false;
     }
 
+    @Override
     public boolean isOpen() {
         return open;
     }
@@ -177,8 +208,18 @@ public class CameraInstance {
         return cameraClosed;
     }
 
+    /**
+     * May be called from any thread. Ignored once closed, since the decoder threads may check
+     * isOpen() just before close() is called.
+     *
+     * @param callback the callback receiving the frame
+     */
+    @Override
     public void requestPreview(final PreviewCallback callback) {
-        validateOpen();
+        if (!open) {
+            Log.d(TAG, "Camera is closed, not requesting preview");
+            return;
+        }
 
         cameraThread.enqueue(new Runnable() {
             @Override
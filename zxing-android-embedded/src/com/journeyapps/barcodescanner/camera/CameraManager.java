@@ -18,6 +18,7 @@ package com.journeyapps.barcodescanner.camera;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.graphics.ImageFormat;
 import android.hardware.Camera;
 import android.media.CamcorderProfile;
 import android.media.MediaRecorder;
@@ -63,6 +64,9 @@ public final class CameraManager {
     private boolean previewing;
     private String defaultParameters;
 
+    // Only set if preview frames are delivered in pooled buffers.
+    private volatile PreviewBufferPool previewBufferPool;
+
     // User parameters
     private CameraSettings settings = new CameraSettings();
 
@@ -83,6 +87,11 @@ public final class CameraManager {
 
         private Size resolution;
 
+        private int format = -1;
+
+        // Only set when preview frames are delivered in pooled buffers.
+        private PreviewBufferPool bufferPool;
+
         public CameraPreviewCallback() {
         }
 
@@ -90,33 +99,63 @@ public final class CameraManager {
             this.resolution = resolution;
         }
 
+        public void setFormat(int format) {
+            this.format = format;
+        }
+
         public void setCallback(PreviewCallback callback) {
             this.callback = callback;
         }
 
+        public void setBufferPool(PreviewBufferPool bufferPool) {
+            this.bufferPool = bufferPool;
+        }
+
         @Override
         public void onPreviewFrame(byte[] data, Camera camera) {
             Size cameraResolution = resolution;
             PreviewCallback callback = this.callback;
+            PreviewBufferPool bufferPool = this.bufferPool;
+            if (bufferPool != null) {
+                if (callback == null) {
+                    // No frame was requested. Hand the buffer straight back to the camera.
+                    bufferPool.recycle(data);
+                    return;
+                }
+                // The callback is registered permanently - clear it so it only receives one frame.
+                this.callback = null;
+            }
             if (cameraResolution != null && callback != null) {
                 try {
                     if (data == null) {
                         throw new NullPointerException("No preview data received");
                     }
-                    int format = camera.getParameters().getPreviewFormat();
+                    int format = this.format;
+                    if (format == -1) {
+                        format = camera.getParameters().getPreviewFormat();
+                    }
                     SourceData source =
                             new SourceData(data, cameraResolution.width, cameraResolution.height, format,
                                     getCameraRotation());
+                    if (bufferPool != null) {
+                        source.setBufferPool(bufferPool);
+                    }
                     callback.onPreview(source);
                 } catch (RuntimeException e) {
                     // Could be:
                     // java.lang.RuntimeException: getParameters failed (empty parameters)
                     // IllegalArgumentException: Image data does not match the resolution
                     Log.e(TAG, "Camera preview failed", e);
+                    if (bufferPool != null) {
+                        bufferPool.recycle(data);
+                    }
                     callback.onPreviewError(e);
                 }
             } else {
                 Log.d(TAG, "Got preview callback, but no handler or resolution available");
+                if (bufferPool != null) {
+                    bufferPool.recycle(data);
+                }
                 if (callback != null) {
                     // Should generally not happen
                     callback.onPreviewError(new Exception("No resolution available"));
@@ -227,6 +266,7 @@ public final class CameraManager {
     public void startPreview() {
         Camera theCamera = camera;
         if (theCamera != null && !previewing) {
+            startPreviewBuffers();
             theCamera.startPreview();
             previewing = true;
             autoFocusManager = new AutoFocusManager(camera, settings);
@@ -251,12 +291,43 @@ public final class CameraManager {
         }
         if (camera != null && previewing) {
             camera.stopPreview();
+            stopPreviewBuffers();
             cameraPreviewCallback.setCallback(null);
             pictureCallback.setCallback(null);
             previewing = false;
         }
     }
 
+    private void startPreviewBuffers() {
+        previewBufferPool = null;
+
+        int bufferCount = settings.getPreviewBufferCount();
+        if (bufferCount <= 0 || previewSize == null) {
+            return;
+        }
+        int bitsPerPixel = ImageFormat.getBitsPerPixel(camera.getParameters().getPreviewFormat());
+        if (bitsPerPixel <= 0) {
+            Log.w(TAG, "Unknown preview format, not using preview buffers");
+            return;
+        }
+        int bufferSize = previewSize.width * previewSize.height * bitsPerPixel / 8;
+
+        PreviewBufferPool pool = new PreviewBufferPool(camera, bufferCount, bufferSize);
+        cameraPreviewCallback.setBufferPool(pool);
+        camera.setPreviewCallbackWithBuffer(cameraPreviewCallback);
+        pool.fill();
+        previewBufferPool = pool;
+    }
+
+    private void stopPreviewBuffers() {
+        PreviewBufferPool pool = previewBufferPool;
+        if (pool != null) {
+            pool.close();
+            camera.setPreviewCallbackWithBuffer(null);
+            cameraPreviewCallback.setBufferPool(null);
+        }
+    }
+
     /**
      * Closes the camera driver if still in use.
      * <p>
@@ -465,6 +536,7 @@ public final class CameraManager {
             previewSize = new Size(realPreviewSize.width, realPreviewSize.height);
         }
         cameraPreviewCallback.setResolution(previewSize);
+        cameraPreviewCallback.setFormat(camera.getParameters().getPreviewFormat());
 
         Camera.Size realPictureSize = camera.getParameters().getPictureSize();
         if (requestedPictureSize != null) {
@@ -519,10 +591,25 @@ public final class CameraManager {
         Camera theCamera = camera;
         if (theCamera != null && previewing) {
             cameraPreviewCallback.setCallback(callback);
-            theCamera.setOneShotPreviewCallback(cameraPreviewCallback);
+            if (previewBufferPool == null) {
+                theCamera.setOneShotPreviewCallback(cameraPreviewCallback);
+            }
+            // Otherwise the callback is already registered with setPreviewCallbackWithBuffer().
         }
     }
 
+    /**
+     * Returns the pool of preview buffers used by the current or last preview.
+     *
+     * May be called from any thread.
+     *
+     * @return the PreviewBufferPool, or null if preview buffers are not used
+     * @see CameraSettings#setPreviewBufferCount(int)
+     */
+    public PreviewBufferPool getPreviewBufferPool() {
+        return previewBufferPool;
+    }
+
     public void requestPicture(PictureCallback callback) {
         Camera theCamera = camera;
         if (theCamera != null && previewing) {
@@ -574,6 +661,41 @@ public final class CameraManager {
         }
     }
 
+    /**
+     * Make the preview brighter or darker, for example when the preview frames are under- or
+     * over-exposed.
+     *
+     * The exposure compensation is moved by one step, within the range supported by the camera.
+     * Only has an effect if exposure is enabled in the camera settings. The torch is left to the
+     * user and to auto torch.
+     *
+     * @param brighter true to make the preview brighter, false to make it darker
+     * @see CameraSettings#isExposureEnabled()
+     */
+    public void adjustExposure(boolean brighter) {
+        if (camera != null && settings.isExposureEnabled()) {
+            try {
+                Camera.Parameters parameters = camera.getParameters();
+                int minExposure = parameters.getMinExposureCompensation();
+                int maxExposure = parameters.getMaxExposureCompensation();
+                if (minExposure == 0 && maxExposure == 0) {
+                    Log.i(TAG, "Camera does not support exposure compensation");
+                    return;
+                }
+                int compensation = parameters.getExposureCompensation();
+                int adjusted = Math.max(minExposure, Math.min(maxExposure, compensation + (brighter ? 1 : -1)));
+                if (adjusted != compensation) {
+                    Log.i(TAG, "Setting exposure compensation to " + adjusted);
+                    parameters.setExposureCompensation(adjusted);
+                    camera.setParameters(parameters);
+                }
+            } catch (RuntimeException e) {
+                // Camera error. Could happen if the camera is being closed.
+                Log.e(TAG, "Failed to adjust exposure", e);
+            }
+        }
+    }
+
     /**
      * @return true if the torch is on
      * @throws RuntimeException if there is a camera error
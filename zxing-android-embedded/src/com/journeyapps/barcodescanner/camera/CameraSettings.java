@@ -14,6 +14,7 @@ public class CameraSettings {
     private boolean continuousFocusEnabled = false;
     private boolean exposureEnabled = false;
     private boolean autoTorchEnabled = false;
+    private int previewBufferCount = 0;
     private FocusMode focusMode = FocusMode.AUTO;
 
     public enum FocusMode {
@@ -160,4 +161,21 @@ public class CameraSettings {
     public void setAutoTorchEnabled(boolean autoTorchEnabled) {
         this.autoTorchEnabled = autoTorchEnabled;
     }
+
+    /**
+     * Default to 0.
+     *
+     * If greater than 0, preview frames are delivered in a pool of this many pre-allocated
+     * buffers, using Camera.setPreviewCallbackWithBuffer(). Otherwise a new buffer is allocated
+     * by the camera for every preview frame.
+     *
+     * @return the number of preview buffers
+     */
+    public int getPreviewBufferCount() {
+        return previewBufferCount;
+    }
+
+    public void setPreviewBufferCount(int previewBufferCount) {
+        this.previewBufferCount = previewBufferCount;
+    }
 }
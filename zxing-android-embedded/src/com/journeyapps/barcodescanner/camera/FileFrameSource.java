@@ -0,0 +1,292 @@
+package com.journeyapps.barcodescanner.camera;
+
+import android.graphics.ImageFormat;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.journeyapps.barcodescanner.SourceData;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * A FrameSource replaying preview frames recorded to a file, to run the decoder without a camera,
+ * for example to measure scanning throughput and latency.
+ *
+ * The file contains raw frames of the same size one after the other, in NV21 or YUY2 format. YUY2
+ * frames are converted to NV21 when read.
+ *
+ * With a frame interval, the replay follows a clock like a camera: a request receives the next
+ * frame due after the request, and frames due while no frame was requested are skipped. Without a
+ * frame interval, every frame is delivered in order, as soon as it is requested.
+ *
+ * Frames are read and delivered on a background thread. open() and close() must be called from
+ * the main thread.
+ */
+public class FileFrameSource implements FrameSource {
+    private static final String TAG = FileFrameSource.class.getSimpleName();
+
+    private final File file;
+    private final int width;
+    private final int height;
+    private final int imageFormat;
+    private final int rotation;
+    private final int frameSize;
+
+    private volatile long frameInterval = 0;
+    private volatile boolean looping = true;
+
+    private HandlerThread thread;
+    private Handler handler;
+    private RandomAccessFile input;
+    private byte[] readBuffer;
+    private volatile boolean open = false;
+    private volatile boolean finished = false;
+
+    // The following are guarded by this.
+    private long startTime;
+    private long lastIndex;
+    private int frameCount;
+    private long framesDelivered;
+
+    /**
+     * @param file        the file with the recorded frames
+     * @param width       the width of the frames
+     * @param height      the height of the frames
+     * @param imageFormat ImageFormat.NV21 or ImageFormat.YUY2
+     * @param rotation    camera rotation relative to display rotation, in degrees (0, 90, 180 or 270)
+     */
+    public FileFrameSource(File file, int width, int height, int imageFormat, int rotation) {
+        if (imageFormat != ImageFormat.NV21 && imageFormat != ImageFormat.YUY2) {
+            throw new IllegalArgumentException("Only NV21 and YUY2 frames are supported");
+        }
+        if (width <= 0 || height <= 0 || width % 2 != 0 || height % 2 != 0) {
+            throw new IllegalArgumentException("Width and height must be positive and even");
+        }
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.imageFormat = imageFormat;
+        this.rotation = rotation;
+        this.frameSize = imageFormat == ImageFormat.NV21 ? width * height * 3 / 2 : width * height * 2;
+    }
+
+    /**
+     * Default to 0.
+     *
+     * @return the time between two frames in milliseconds, or 0 to deliver frames as fast as
+     * they are requested
+     */
+    public long getFrameInterval() {
+        return frameInterval;
+    }
+
+    /**
+     * Set the time between two frames, for example 33 ms to replay at 30 fps. Call before open().
+     *
+     * @param frameInterval the time in milliseconds, or 0 to deliver frames as fast as they are
+     *                      requested
+     */
+    public void setFrameInterval(long frameInterval) {
+        if (frameInterval < 0) {
+            throw new IllegalArgumentException("Frame interval must not be negative");
+        }
+        this.frameInterval = frameInterval;
+    }
+
+    /**
+     * Default to true.
+     *
+     * @return true to start over at the end of the file, false to stop
+     */
+    public boolean isLooping() {
+        return looping;
+    }
+
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    /**
+     * Open the file and start the replay clock.
+     *
+     * @throws IOException if the file cannot be read, or contains no complete frame
+     */
+    public void open() throws IOException {
+        if (open) {
+            return;
+        }
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        int frameCount = (int) (input.length() / frameSize);
+        if (frameCount == 0) {
+            input.close();
+            throw new IOException("No complete frame in " + file);
+        }
+        this.input = input;
+        if (imageFormat == ImageFormat.YUY2) {
+            readBuffer = new byte[frameSize];
+        }
+
+        thread = new HandlerThread(TAG);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+
+        synchronized (this) {
+            this.frameCount = frameCount;
+            this.startTime = SystemClock.uptimeMillis();
+            this.lastIndex = -1;
+        }
+        finished = false;
+        open = true;
+    }
+
+    /**
+     * Stop the replay, and close the file. Pending requests are dropped.
+     */
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        final RandomAccessFile input = this.input;
+        final HandlerThread thread = this.thread;
+        handler.removeCallbacksAndMessages(null);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to close " + file, e);
+                }
+                thread.quit();
+            }
+        });
+    }
+
+    /**
+     * @return true if open and frames are left to replay
+     */
+    @Override
+    public boolean isOpen() {
+        return open && !finished;
+    }
+
+    /**
+     * Request the next frame. Ignored once closed, since a decoder thread may check isOpen() just
+     * before close() is called on the main thread.
+     *
+     * @param callback the callback receiving the frame, on a background thread
+     */
+    @Override
+    public void requestPreview(final PreviewCallback callback) {
+        if (!open) {
+            Log.w(TAG, "Ignoring preview request: FileFrameSource is closed");
+            return;
+        }
+
+        final long index;
+        long time;
+        synchronized (this) {
+            long now = SystemClock.uptimeMillis();
+            if (frameInterval > 0) {
+                // The first frame due at or after now.
+                long due = (now - startTime + frameInterval - 1) / frameInterval;
+                index = Math.max(lastIndex + 1, due);
+                time = startTime + index * frameInterval;
+            } else {
+                index = lastIndex + 1;
+                time = now;
+            }
+            lastIndex = index;
+        }
+
+        handler.postAtTime(new Runnable() {
+            @Override
+            public void run() {
+                deliverFrame(index, callback);
+            }
+        }, time);
+    }
+
+    private void deliverFrame(long index, PreviewCallback callback) {
+        if (!open) {
+            return;
+        }
+        int frameCount;
+        synchronized (this) {
+            frameCount = this.frameCount;
+        }
+        if (index >= frameCount && !looping) {
+            finished = true;
+            callback.onPreviewError(new EOFException("End of " + file));
+            return;
+        }
+
+        try {
+            byte[] data = readFrame((int) (index % frameCount));
+            synchronized (this) {
+                framesDelivered++;
+            }
+            callback.onPreview(new SourceData(data, width, height, ImageFormat.NV21, rotation));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read frame " + index + " from " + file, e);
+            callback.onPreviewError(e);
+        }
+    }
+
+    private byte[] readFrame(int frame) throws IOException {
+        byte[] data = new byte[width * height * 3 / 2];
+        input.seek((long) frame * frameSize);
+        if (imageFormat == ImageFormat.NV21) {
+            input.readFully(data);
+        } else {
+            input.readFully(readBuffer);
+            yuy2ToNv21(readBuffer, width, height, data);
+        }
+        return data;
+    }
+
+    /**
+     * Convert a YUY2 frame to NV21, taking the chroma from the even rows.
+     *
+     * @param yuy2   the YUY2 data: Y0 U Y1 V for every two pixels
+     * @param width  the frame width, must be even
+     * @param height the frame height, must be even
+     * @param nv21   the NV21 data: the Y plane, followed by interleaved V and U at quarter resolution
+     */
+    static void yuy2ToNv21(byte[] yuy2, int width, int height, byte[] nv21) {
+        int chroma = width * height;
+        for (int y = 0; y < height; y++) {
+            int in = y * width * 2;
+            int out = y * width;
+            for (int x = 0; x < width; x += 2, in += 4) {
+                nv21[out + x] = yuy2[in];
+                nv21[out + x + 1] = yuy2[in + 2];
+                if ((y & 1) == 0) {
+                    int c = chroma + (y / 2) * width + x;
+                    nv21[c] = yuy2[in + 3];
+                    nv21[c + 1] = yuy2[in + 1];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of frames in the file, once open
+     */
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return the number of frames delivered since the source was created
+     */
+    public synchronized long getFramesDelivered() {
+        return framesDelivered;
+    }
+}
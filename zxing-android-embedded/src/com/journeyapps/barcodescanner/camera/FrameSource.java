@@ -0,0 +1,24 @@
+package com.journeyapps.barcodescanner.camera;
+
+/**
+ * A source of preview frames, such as the camera.
+ *
+ * @see CameraInstance
+ * @see FileFrameSource
+ */
+public interface FrameSource {
+    /**
+     * @return true if frames can be requested
+     */
+    boolean isOpen();
+
+    /**
+     * Request a single frame. The callback is called once, on a background thread.
+     *
+     * May be called from any thread. Requests made after the source is closed are ignored, since
+     * isOpen() may change right after being checked.
+     *
+     * @param callback the callback receiving the frame
+     */
+    void requestPreview(PreviewCallback callback);
+}
@@ -0,0 +1,124 @@
+package com.journeyapps.barcodescanner.camera;
+
+import android.hardware.Camera;
+import android.util.Log;
+
+/**
+ * A fixed-size pool of preview buffers, used with Camera.setPreviewCallbackWithBuffer().
+ *
+ * The buffers are allocated once when the preview starts. Each buffer is handed to the camera
+ * with Camera.addCallbackBuffer(), delivered with a preview frame, and returned to the camera
+ * once the consumer of the SourceData releases it.
+ *
+ * recycle() and replace() may be called from any thread.
+ */
+public final class PreviewBufferPool {
+    private static final String TAG = PreviewBufferPool.class.getSimpleName();
+
+    private final Camera camera;
+    private final int poolSize;
+    private final int bufferSize;
+
+    private boolean closed = false;
+
+    private long buffersAllocated = 0;
+    private long buffersReused = 0;
+
+    /**
+     * @param camera     the camera to hand the buffers to
+     * @param poolSize   the number of buffers to allocate
+     * @param bufferSize the size of each buffer in bytes
+     */
+    PreviewBufferPool(Camera camera, int poolSize, int bufferSize) {
+        this.camera = camera;
+        this.poolSize = poolSize;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Allocate all the buffers and hand them to the camera.
+     *
+     * Call from the camera thread.
+     */
+    synchronized void fill() {
+        for (int i = 0; i < poolSize; i++) {
+            addNewBuffer();
+        }
+    }
+
+    /**
+     * Stop handing buffers to the camera. Must be called before the camera is released.
+     *
+     * Call from the camera thread.
+     */
+    synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * Return a buffer to the camera, to be filled with a later preview frame.
+     *
+     * @param buffer a buffer previously delivered with a preview frame
+     */
+    public synchronized void recycle(byte[] buffer) {
+        if (closed || buffer == null || buffer.length != bufferSize) {
+            return;
+        }
+        try {
+            camera.addCallbackBuffer(buffer);
+            buffersReused++;
+        } catch (RuntimeException e) {
+            // Could happen if the camera is being closed.
+            Log.w(TAG, "Failed to recycle preview buffer", e);
+        }
+    }
+
+    /**
+     * A buffer is kept by its consumer, for example as a full frame. Hand a newly allocated
+     * buffer to the camera in its place, so that the pool size stays the same.
+     */
+    public synchronized void replace() {
+        if (closed) {
+            return;
+        }
+        try {
+            addNewBuffer();
+        } catch (RuntimeException e) {
+            // Could happen if the camera is being closed.
+            Log.w(TAG, "Failed to replace preview buffer", e);
+        }
+    }
+
+    private void addNewBuffer() {
+        camera.addCallbackBuffer(new byte[bufferSize]);
+        buffersAllocated++;
+    }
+
+    /**
+     * @return the number of buffers in the pool
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return the size of each buffer in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the total number of buffers allocated, including the initial ones
+     */
+    public synchronized long getBuffersAllocated() {
+        return buffersAllocated;
+    }
+
+    /**
+     * @return the number of times a buffer was returned to the camera for reuse
+     */
+    public synchronized long getBuffersReused() {
+        return buffersReused;
+    }
+}
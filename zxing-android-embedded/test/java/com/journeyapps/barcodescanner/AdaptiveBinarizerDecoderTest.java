@@ -0,0 +1,116 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.journeyapps.barcodescanner.AdaptiveBinarizerDecoder.BinarizerType.GLOBAL_HISTOGRAM;
+import static com.journeyapps.barcodescanner.AdaptiveBinarizerDecoder.BinarizerType.HYBRID;
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class AdaptiveBinarizerDecoderTest {
+    @Test
+    public void testPreferSuccess() {
+        AdaptiveBinarizerDecoder decoder = new AdaptiveBinarizerDecoder(new MultiFormatReader());
+        assertEquals(HYBRID, decoder.getPreferredBinarizer());
+
+        decoder.record(HYBRID, true, 2000);
+        decoder.record(GLOBAL_HISTOGRAM, false, 100);
+        assertEquals(HYBRID, decoder.getPreferredBinarizer());
+    }
+
+    @Test
+    public void testPreferFaster() {
+        AdaptiveBinarizerDecoder decoder = new AdaptiveBinarizerDecoder(new MultiFormatReader());
+        decoder.record(HYBRID, false, 2000);
+        decoder.record(GLOBAL_HISTOGRAM, false, 100);
+        // Neither found a barcode yet.
+        assertEquals(HYBRID, decoder.getPreferredBinarizer());
+
+        decoder.record(HYBRID, true, 2000);
+        decoder.record(GLOBAL_HISTOGRAM, true, 100);
+        assertEquals(GLOBAL_HISTOGRAM, decoder.getPreferredBinarizer());
+
+        // Hybrid finds barcodes the other one misses.
+        for (int i = 0; i < 5; i++) {
+            decoder.record(HYBRID, true, 2000);
+        }
+        assertEquals(HYBRID, decoder.getPreferredBinarizer());
+        assertEquals(7, decoder.getAttemptCount(HYBRID));
+        assertEquals(6, decoder.getSuccessCount(HYBRID));
+    }
+
+    @Test
+    public void testNoRecentSuccess() {
+        AdaptiveBinarizerDecoder decoder = new AdaptiveBinarizerDecoder(new MultiFormatReader());
+        decoder.record(HYBRID, true, 2000);
+        decoder.record(GLOBAL_HISTOGRAM, true, 100);
+        assertEquals(GLOBAL_HISTOGRAM, decoder.getPreferredBinarizer());
+
+        // The barcode is gone: the success rates decay to about 0.
+        for (int i = 0; i < 100; i++) {
+            decoder.record(HYBRID, false, 2000);
+            decoder.record(GLOBAL_HISTOGRAM, false, 100);
+        }
+        assertEquals(HYBRID, decoder.getPreferredBinarizer());
+
+        // Only the faster one finds barcodes again.
+        decoder.record(GLOBAL_HISTOGRAM, true, 100);
+        assertEquals(GLOBAL_HISTOGRAM, decoder.getPreferredBinarizer());
+    }
+
+    @Test
+    public void testExploration() {
+        AdaptiveBinarizerDecoder decoder = new AdaptiveBinarizerDecoder(new MultiFormatReader());
+        decoder.setExplorationInterval(4);
+        decoder.record(HYBRID, true, 2000);
+        decoder.record(GLOBAL_HISTOGRAM, true, 100);
+
+        int explored = 0;
+        for (int i = 0; i < 20; i++) {
+            if (decoder.select() == HYBRID) {
+                explored++;
+            }
+        }
+        assertEquals(5, explored);
+
+        decoder.setExplorationInterval(0);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(GLOBAL_HISTOGRAM, decoder.select());
+        }
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        BitMatrix barcode = new MultiFormatWriter().encode("adaptive", BarcodeFormat.CODE_128, 200, 100);
+        byte[] data = new byte[200 * 100];
+        Arrays.fill(data, (byte) 255);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 200; x++) {
+                if (barcode.get(x, y)) {
+                    data[y * 200 + x] = 0;
+                }
+            }
+        }
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(data, 200, 100, 0, 0, 200, 100, false);
+
+        AdaptiveBinarizerDecoder decoder = new AdaptiveBinarizerDecoder(new MultiFormatReader());
+        decoder.setExplorationInterval(2);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("adaptive", decoder.decode(source).getText());
+        }
+        // Which one is preferred depends on timing, but both were tried.
+        assertEquals(4, decoder.getSuccessCount(HYBRID) + decoder.getSuccessCount(GLOBAL_HISTOGRAM));
+        assertTrue(decoder.getSuccessCount(GLOBAL_HISTOGRAM) > 0);
+        assertEquals(1f, decoder.getSuccessRate(HYBRID), 0f);
+    }
+}
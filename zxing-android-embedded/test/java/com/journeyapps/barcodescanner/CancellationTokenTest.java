@@ -0,0 +1,69 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class CancellationTokenTest {
+    private static LuminanceSource image() throws Exception {
+        BitMatrix matrix = new BarcodeEncoder().encode("cancel", BarcodeFormat.QR_CODE, 200, 200);
+        byte[] data = new byte[200 * 200];
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                data[y * 200 + x] = (byte) (matrix.get(x, y) ? 0 : 255);
+            }
+        }
+        return new PlanarYUVLuminanceSource(data, 200, 200, 0, 0, 200, 200, false);
+    }
+
+    @Test
+    public void testCancel() {
+        CancellationToken token = new CancellationToken();
+        assertFalse(token.isCancelled());
+        assertEquals(-1, token.getCancelTime());
+        token.throwIfCancelled();
+
+        token.cancel();
+        assertTrue(token.isCancelled());
+        assertTrue(token.getCancelTime() > 0);
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancellableSource() throws Exception {
+        CancellationToken token = new CancellationToken();
+        LuminanceSource source = new CancellableLuminanceSource(image(), token).crop(10, 10, 100, 100);
+        assertEquals(100, source.getRow(0, null).length);
+        token.cancel();
+        source.getRow(0, null);
+    }
+
+    @Test
+    public void testDecoder() throws Exception {
+        Decoder decoder = new Decoder(new MultiFormatReader());
+        CancellationToken token = new CancellationToken();
+        decoder.setCancellationToken(token);
+        assertEquals("cancel", decoder.decode(new CancellableLuminanceSource(image(), token), new DecodeTimings()).getText());
+
+        token.cancel();
+        try {
+            decoder.decode(new CancellableLuminanceSource(image(), token), new DecodeTimings());
+            fail("Expected a CancellationException");
+        } catch (CancellationException e) {
+            // Expected
+        }
+
+        decoder.setCancellationToken(null);
+        assertEquals("cancel", decoder.decode(image()).getText());
+    }
+}
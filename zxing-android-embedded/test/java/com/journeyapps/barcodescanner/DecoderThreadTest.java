@@ -0,0 +1,39 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class DecoderThreadTest {
+    @Test
+    public void testRegionOfInterest() {
+        ResultPoint[] points = {new ResultPoint(100, 100), new ResultPoint(140, 100), new ResultPoint(100, 140)};
+        assertArrayEquals(new int[]{80, 80, 160, 160}, DecoderThread.regionOfInterest(points, 400, 400, 0.5f));
+    }
+
+    @Test
+    public void testRegionOfInterestMinimumMargin() {
+        ResultPoint[] points = {new ResultPoint(100, 100), new ResultPoint(104, 100)};
+        assertArrayEquals(new int[]{84, 84, 120, 116}, DecoderThread.regionOfInterest(points, 400, 400, 0.5f));
+    }
+
+    @Test
+    public void testRegionOfInterestClamped() {
+        ResultPoint[] points = {new ResultPoint(10, 10), new ResultPoint(50, 10), null, new ResultPoint(10, 50)};
+        assertArrayEquals(new int[]{0, 0, 70, 70}, DecoderThread.regionOfInterest(points, 400, 400, 0.5f));
+    }
+
+    @Test
+    public void testNoRegionOfInterest() {
+        assertNull(DecoderThread.regionOfInterest(null, 400, 400, 0.5f));
+        assertNull(DecoderThread.regionOfInterest(new ResultPoint[]{new ResultPoint(10, 10)}, 400, 400, 0.5f));
+        // Too large to be worth it.
+        ResultPoint[] points = {new ResultPoint(50, 50), new ResultPoint(350, 350)};
+        assertNull(DecoderThread.regionOfInterest(points, 400, 400, 0.5f));
+    }
+}
@@ -0,0 +1,45 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatReader;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class DecoderWarmUpTest {
+    @Test
+    public void testSources() {
+        assertEquals(13, DecoderWarmUp.createSources(null).size());
+        assertEquals(2, DecoderWarmUp.createSources(EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.EAN_13,
+                BarcodeFormat.RSS_14)).size());
+    }
+
+    @Test
+    public void testWarmUp() {
+        DecoderWarmUp warmUp = new DecoderWarmUp(new Decoder(new MultiFormatReader()), null);
+        warmUp.setRounds(2);
+        warmUp.run();
+
+        assertTrue(warmUp.isFinished());
+        assertEquals(26, warmUp.getDecodeCount());
+        // All the synthetic barcodes decode.
+        assertEquals(26, warmUp.getResultCount());
+        assertTrue(warmUp.getDuration() >= 0);
+    }
+
+    @Test
+    public void testCancel() {
+        DecoderWarmUp warmUp = new DecoderWarmUp(new Decoder(new MultiFormatReader()), null);
+        warmUp.cancel();
+        warmUp.run();
+
+        assertFalse(warmUp.isFinished());
+        assertEquals(0, warmUp.getDecodeCount());
+    }
+}
@@ -0,0 +1,80 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class DefaultDecoderFactoryTest {
+    private static Decoder createDecoder(DefaultDecoderFactory factory) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        return factory.createDecoder(hints);
+    }
+
+    @Test
+    public void testSingleOption() {
+        DefaultDecoderFactory factory = new DefaultDecoderFactory();
+        factory.setMixedPolarity(true);
+        assertTrue(createDecoder(factory) instanceof MixedPolarityDecoder);
+
+        factory = new DefaultDecoderFactory();
+        factory.setDownscaleFactor(2);
+        assertTrue(createDecoder(factory) instanceof PyramidDecoder);
+
+        factory = new DefaultDecoderFactory();
+        factory.setAdaptiveBinarizer(true);
+        assertTrue(createDecoder(factory) instanceof AdaptiveBinarizerDecoder);
+
+        factory = new DefaultDecoderFactory(EnumSet.of(BarcodeFormat.QR_CODE, BarcodeFormat.CODE_128), null, null, false);
+        factory.setFormatScheduling(true);
+        assertTrue(createDecoder(factory) instanceof FormatSchedulingDecoder);
+    }
+
+    @Test
+    public void testInverted() {
+        DefaultDecoderFactory factory = new DefaultDecoderFactory(null, null, null, true);
+        assertTrue(createDecoder(factory).isInverted());
+
+        factory.setDownscaleFactor(2);
+        assertTrue(createDecoder(factory).isInverted());
+
+        factory = new DefaultDecoderFactory(null, null, null, true);
+        factory.setMixedPolarity(true);
+        Decoder decoder = createDecoder(factory);
+        assertFalse(decoder.isInverted());
+        assertTrue(((MixedPolarityDecoder) decoder).isInvertedFirst());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMixedPolarityAndDownscale() {
+        DefaultDecoderFactory factory = new DefaultDecoderFactory();
+        factory.setMixedPolarity(true);
+        factory.setDownscaleFactor(2);
+        createDecoder(factory);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleAndAdaptiveBinarizer() {
+        DefaultDecoderFactory factory = new DefaultDecoderFactory();
+        factory.setDecodeMultiple(true);
+        factory.setAdaptiveBinarizer(true);
+        createDecoder(factory);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAdaptiveBinarizerAndFormatScheduling() {
+        DefaultDecoderFactory factory = new DefaultDecoderFactory();
+        factory.setAdaptiveBinarizer(true);
+        factory.setFormatScheduling(true);
+        createDecoder(factory);
+    }
+}
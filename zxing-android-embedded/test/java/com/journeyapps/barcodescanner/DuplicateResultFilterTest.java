@@ -0,0 +1,56 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class DuplicateResultFilterTest {
+    private static final BarcodeFormat QR = BarcodeFormat.QR_CODE;
+    private static final BarcodeFormat EAN = BarcodeFormat.EAN_13;
+
+    @Test
+    public void testTtl() {
+        DuplicateResultFilter filter = new DuplicateResultFilter(4, 1000);
+        assertFalse(filter.isDuplicate(QR, 1, 0));
+        assertTrue(filter.isDuplicate(QR, 1, 500));
+        // Seeing it again restarts the TTL.
+        assertTrue(filter.isDuplicate(QR, 1, 1400));
+        assertFalse(filter.isDuplicate(QR, 1, 2400));
+
+        // The format is part of the key.
+        assertFalse(filter.isDuplicate(EAN, 1, 2500));
+
+        assertEquals(2, filter.getHitCount());
+        assertEquals(3, filter.getMissCount());
+        assertEquals(0, filter.getEvictionCount());
+    }
+
+    @Test
+    public void testEviction() {
+        DuplicateResultFilter filter = new DuplicateResultFilter(2, 1000);
+        assertFalse(filter.isDuplicate(QR, 1, 0));
+        assertFalse(filter.isDuplicate(QR, 2, 10));
+        assertTrue(filter.isDuplicate(QR, 1, 20));
+        // Evicts 2, the least recently seen.
+        assertFalse(filter.isDuplicate(QR, 3, 30));
+        assertEquals(1, filter.getEvictionCount());
+        assertTrue(filter.isDuplicate(QR, 1, 40));
+        assertFalse(filter.isDuplicate(QR, 2, 50));
+    }
+
+    @Test
+    public void testHash() {
+        Result a = new Result("abc", null, null, QR);
+        Result b = new Result("abd", null, null, QR);
+        Result raw = new Result("abc", new byte[]{1, 2, 3}, null, QR);
+        assertEquals(DuplicateResultFilter.hash(a), DuplicateResultFilter.hash(new Result("abc", null, null, EAN)));
+        assertNotEquals(DuplicateResultFilter.hash(a), DuplicateResultFilter.hash(b));
+        assertNotEquals(DuplicateResultFilter.hash(a), DuplicateResultFilter.hash(raw));
+    }
+}
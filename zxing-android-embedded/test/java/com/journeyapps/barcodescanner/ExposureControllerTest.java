@@ -0,0 +1,61 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class ExposureControllerTest {
+    private static ExposureController.Exposure measure(int min, int max) {
+        int width = 200;
+        int height = 100;
+        byte[] data = new byte[width * height];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (min + random.nextInt(max - min + 1));
+        }
+        int[] histogram = new int[ExposureController.HISTOGRAM_SIZE];
+        return ExposureController.measure(new PlanarYUVLuminanceSource(data, width, height, 0, 0, width, height, false), histogram);
+    }
+
+    @Test
+    public void testMeasure() {
+        assertEquals(ExposureController.Exposure.WELL_EXPOSED, measure(20, 230));
+        assertEquals(ExposureController.Exposure.UNDEREXPOSED, measure(0, 100));
+        assertEquals(ExposureController.Exposure.BADLY_UNDEREXPOSED, measure(0, 30));
+        assertEquals(ExposureController.Exposure.OVEREXPOSED, measure(240, 255));
+        assertEquals(ExposureController.Exposure.BADLY_OVEREXPOSED, measure(252, 255));
+    }
+
+    @Test
+    public void testAdjustment() {
+        ExposureController controller = new ExposureController();
+        long time = 0;
+        for (int i = 1; i < ExposureController.FRAMES_BEFORE_ADJUSTING; i++) {
+            assertEquals(0, controller.adjustment(ExposureController.Exposure.UNDEREXPOSED, time++));
+        }
+        assertEquals(1, controller.adjustment(ExposureController.Exposure.UNDEREXPOSED, time++));
+
+        // Wait for the exposure to settle.
+        for (int i = 0; i < 2 * ExposureController.FRAMES_BEFORE_ADJUSTING; i++) {
+            assertEquals(0, controller.adjustment(ExposureController.Exposure.OVEREXPOSED, time++));
+        }
+        assertEquals(-1, controller.adjustment(ExposureController.Exposure.OVEREXPOSED, time + ExposureController.ADJUSTMENT_INTERVAL));
+    }
+
+    @Test
+    public void testShouldDecode() {
+        ExposureController controller = new ExposureController();
+        assertTrue(controller.shouldDecode(ExposureController.Exposure.UNDEREXPOSED));
+        for (int i = 0; i < ExposureController.MAX_SKIPPED_IN_A_ROW; i++) {
+            assertFalse(controller.shouldDecode(ExposureController.Exposure.BADLY_UNDEREXPOSED));
+        }
+        assertTrue(controller.shouldDecode(ExposureController.Exposure.BADLY_UNDEREXPOSED));
+    }
+}
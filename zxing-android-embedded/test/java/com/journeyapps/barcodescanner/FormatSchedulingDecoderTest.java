@@ -0,0 +1,106 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class FormatSchedulingDecoderTest {
+    @Test
+    public void testDefaultGroups() {
+        assertEquals(4, FormatSchedulingDecoder.defaultGroups(null).size());
+
+        List<Set<BarcodeFormat>> groups = FormatSchedulingDecoder.defaultGroups(EnumSet.of(
+                BarcodeFormat.EAN_13, BarcodeFormat.CODE_128, BarcodeFormat.QR_CODE));
+        assertEquals(Arrays.asList(EnumSet.of(BarcodeFormat.EAN_13, BarcodeFormat.CODE_128),
+                EnumSet.of(BarcodeFormat.QR_CODE)), groups);
+    }
+
+    @Test
+    public void testRoundRobin() {
+        FormatSchedulingDecoder decoder = new FormatSchedulingDecoder(FormatSchedulingDecoder.defaultGroups(null), null);
+        int[] counts = new int[4];
+        for (int i = 0; i < 40; i++) {
+            counts[decoder.select()]++;
+        }
+        assertArrayEquals(new int[]{10, 10, 10, 10}, counts);
+    }
+
+    @Test
+    public void testRecentGroup() {
+        FormatSchedulingDecoder decoder = new FormatSchedulingDecoder(FormatSchedulingDecoder.defaultGroups(null), null);
+        decoder.record(2, true);
+        int[] counts = new int[4];
+        for (int i = 0; i < 8; i++) {
+            counts[decoder.select()]++;
+        }
+        assertTrue(counts[2] >= 4);
+
+        // Back to an equal share.
+        for (int i = 0; i < 100; i++) {
+            decoder.select();
+        }
+        counts = new int[4];
+        for (int i = 0; i < 40; i++) {
+            counts[decoder.select()]++;
+        }
+        assertEquals(10, counts[2], 1);
+    }
+
+    @Test
+    public void testEveryFrameGroup() {
+        FormatSchedulingDecoder decoder = new FormatSchedulingDecoder(FormatSchedulingDecoder.defaultGroups(null), null);
+        decoder.setEveryFrameGroup(0);
+        int[] counts = new int[4];
+        for (int i = 0; i < 30; i++) {
+            counts[decoder.select()]++;
+        }
+        assertArrayEquals(new int[]{0, 10, 10, 10}, counts);
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        BitMatrix barcode = new MultiFormatWriter().encode("scheduled", BarcodeFormat.CODE_128, 200, 100);
+        byte[] data = new byte[200 * 100];
+        Arrays.fill(data, (byte) 255);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 200; x++) {
+                if (barcode.get(x, y)) {
+                    data[y * 200 + x] = 0;
+                }
+            }
+        }
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(data, 200, 100, 0, 0, 200, 100, false);
+
+        FormatSchedulingDecoder decoder = new FormatSchedulingDecoder(FormatSchedulingDecoder.defaultGroups(null), null);
+        int found = 0;
+        for (int i = 0; i < 4; i++) {
+            if (decoder.decode(source) != null) {
+                found++;
+            }
+        }
+        // Only the 1D group finds it, and then gets more frames.
+        assertEquals(found, decoder.getAttemptCount(0));
+        assertEquals(found, decoder.getSuccessCount(0));
+        assertTrue(found >= 2);
+
+        decoder = new FormatSchedulingDecoder(FormatSchedulingDecoder.defaultGroups(null), null);
+        decoder.setEveryFrameGroup(0);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("scheduled", decoder.decode(source).getText());
+        }
+        assertEquals(4, decoder.getSuccessCount(0));
+    }
+}
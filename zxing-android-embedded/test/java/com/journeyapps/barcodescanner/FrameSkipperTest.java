@@ -0,0 +1,63 @@
+package com.journeyapps.barcodescanner;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class FrameSkipperTest {
+    private static final long FRAME_INTERVAL = TimeUnit.MILLISECONDS.toNanos(33);
+
+    /**
+     * Feed frames at a fixed interval, decoding each frame that is not skipped in a fixed time.
+     *
+     * @return the fraction of frames decoded
+     */
+    private static float run(FrameSkipper skipper, long decodeTime, int frames) {
+        int decoded = 0;
+        for (int i = 0; i < frames; i++) {
+            if (skipper.shouldDecode(i * FRAME_INTERVAL)) {
+                skipper.decoded(decodeTime);
+                decoded++;
+            }
+        }
+        return decoded / (float) frames;
+    }
+
+    @Test
+    public void testFastDecoder() {
+        FrameSkipper skipper = new FrameSkipper(1, 0.6f);
+        assertEquals(1f, run(skipper, TimeUnit.MILLISECONDS.toNanos(10), 100), 0f);
+        assertEquals(0f, skipper.getSkipRatio(), 0f);
+    }
+
+    @Test
+    public void testSlowDecoder() {
+        FrameSkipper skipper = new FrameSkipper(1, 0.6f);
+        run(skipper, TimeUnit.MILLISECONDS.toNanos(100), 100);
+        // 1 - 0.6 * 33 / 100
+        assertEquals(0.802f, skipper.getSkipRatio(), 0.001f);
+        // The workers are busy for 60% of the time.
+        float decoded = run(skipper, TimeUnit.MILLISECONDS.toNanos(100), 1000);
+        assertEquals(0.6f, decoded * 100 / 33, 0.01f);
+    }
+
+    @Test
+    public void testMultipleWorkers() {
+        FrameSkipper skipper = new FrameSkipper(2, 0.6f);
+        run(skipper, TimeUnit.MILLISECONDS.toNanos(100), 100);
+        // 1 - 0.6 * 2 * 33 / 100
+        assertEquals(0.604f, skipper.getSkipRatio(), 0.001f);
+    }
+
+    @Test
+    public void testMaxSkipRatio() {
+        FrameSkipper skipper = new FrameSkipper(1, 0.1f);
+        run(skipper, TimeUnit.SECONDS.toNanos(1), 100);
+        assertEquals(FrameSkipper.MAX_SKIP_RATIO, skipper.getSkipRatio(), 0f);
+    }
+}
@@ -0,0 +1,84 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class MixedPolarityDecoderTest {
+    private static final int SIZE = 200;
+
+    /**
+     * @return a luminance image with a barcode, dark on light or light on dark
+     */
+    private static PlanarYUVLuminanceSource image(String contents, BarcodeFormat format, int height, boolean inverted) throws Exception {
+        BitMatrix barcode = new MultiFormatWriter().encode(contents, format, SIZE, height);
+        byte[] data = new byte[SIZE * SIZE];
+        Arrays.fill(data, (byte) (inverted ? 0 : 255));
+        int top = (SIZE - barcode.getHeight()) / 2;
+        for (int y = 0; y < barcode.getHeight(); y++) {
+            for (int x = 0; x < barcode.getWidth(); x++) {
+                data[(top + y) * SIZE + x] = (byte) (barcode.get(x, y) != inverted ? 0 : 255);
+            }
+        }
+        return new PlanarYUVLuminanceSource(data, SIZE, SIZE, 0, 0, SIZE, SIZE, false);
+    }
+
+    @Test
+    public void testFlip() {
+        BitMatrix matrix = new BitMatrix(33, 2);
+        matrix.set(3, 1);
+        BitMatrix original = matrix.clone();
+
+        MixedPolarityDecoder.flip(matrix, null);
+        assertFalse(matrix.get(3, 1));
+        assertTrue(matrix.get(32, 1));
+        // The padding bits stay clear.
+        assertArrayEquals(new int[]{32, 1}, matrix.getBottomRightOnBit());
+
+        MixedPolarityDecoder.flip(matrix, null);
+        assertEquals(original, matrix);
+    }
+
+    @Test
+    public void testBothPolarities() throws Exception {
+        MixedPolarityDecoder decoder = new MixedPolarityDecoder(new MultiFormatReader());
+
+        Result result = decoder.decode(image("normal", BarcodeFormat.QR_CODE, SIZE, false));
+        assertEquals("normal", result.getText());
+        assertFalse(decoder.isInvertedFirst());
+
+        result = decoder.decode(image("inverted", BarcodeFormat.QR_CODE, SIZE, true));
+        assertEquals("inverted", result.getText());
+        assertTrue(decoder.isInvertedFirst());
+
+        result = decoder.decode(image("inverted", BarcodeFormat.CODE_128, 100, true));
+        assertEquals("inverted", result.getText());
+
+        assertEquals(1, decoder.getNormalCount());
+        assertEquals(2, decoder.getInvertedCount());
+    }
+
+    @Test
+    public void testAlternating() throws Exception {
+        MixedPolarityDecoder decoder = new MixedPolarityDecoder(new MultiFormatReader());
+        decoder.setAlternating(true);
+        PlanarYUVLuminanceSource source = image("inverted", BarcodeFormat.QR_CODE, SIZE, true);
+
+        assertNull(decoder.decode(source));
+        assertTrue(decoder.isInvertedFirst());
+        assertEquals("inverted", decoder.decode(source).getText());
+        assertEquals("inverted", decoder.decode(source).getText());
+    }
+}
@@ -0,0 +1,83 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class MultipleBarcodeDecoderTest {
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 200;
+
+    /**
+     * @return a luminance image with the barcodes side by side, vertically centered
+     */
+    private static byte[] image(BitMatrix... barcodes) {
+        byte[] data = new byte[WIDTH * HEIGHT];
+        Arrays.fill(data, (byte) 255);
+        int left = 0;
+        for (BitMatrix barcode : barcodes) {
+            int top = (HEIGHT - barcode.getHeight()) / 2;
+            for (int y = 0; y < barcode.getHeight(); y++) {
+                for (int x = 0; x < barcode.getWidth(); x++) {
+                    if (barcode.get(x, y)) {
+                        data[(top + y) * WIDTH + left + x] = 0;
+                    }
+                }
+            }
+            left += barcode.getWidth();
+        }
+        return data;
+    }
+
+    private static BitMatrix encode(String contents, BarcodeFormat format, int width, int height) throws Exception {
+        return new MultiFormatWriter().encode(contents, format, width, height);
+    }
+
+    private static Set<String> decode(DefaultDecoderFactory factory, byte[] data) {
+        Decoder decoder = factory.createDecoder(Collections.<DecodeHintType, Object>emptyMap());
+        assertTrue(decoder instanceof MultipleBarcodeDecoder);
+        List<Result> results = ((MultipleBarcodeDecoder) decoder).decodeMultiple(
+                new PlanarYUVLuminanceSource(data, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false));
+        Set<String> texts = new HashSet<>();
+        for (Result result : results) {
+            texts.add(result.getText());
+        }
+        return texts;
+    }
+
+    @Test
+    public void testDecodeMultiple() throws Exception {
+        byte[] data = image(encode("first", BarcodeFormat.QR_CODE, 200, 200),
+                encode("second", BarcodeFormat.CODE_128, 200, 100));
+
+        DefaultDecoderFactory factory = new DefaultDecoderFactory();
+        factory.setDecodeMultiple(true);
+        assertEquals(new HashSet<>(Arrays.asList("first", "second")), decode(factory, data));
+    }
+
+    @Test
+    public void testDecodeMultipleQRCodes() throws Exception {
+        byte[] data = image(encode("first", BarcodeFormat.QR_CODE, 200, 200),
+                encode("second", BarcodeFormat.QR_CODE, 200, 200));
+
+        DefaultDecoderFactory factory = new DefaultDecoderFactory(Collections.singleton(BarcodeFormat.QR_CODE), null, null, false);
+        factory.setDecodeMultiple(true);
+        assertEquals(new HashSet<>(Arrays.asList("first", "second")), decode(factory, data));
+    }
+}
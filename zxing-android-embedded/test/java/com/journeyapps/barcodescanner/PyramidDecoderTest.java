@@ -0,0 +1,115 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class PyramidDecoderTest {
+    private static final int SIZE = 400;
+
+    /**
+     * A QRCodeReader recording the width of each bitmap read.
+     */
+    private static class RecordingReader implements Reader {
+        private final Reader delegate = new QRCodeReader();
+        private final List<Integer> widths = new ArrayList<>();
+
+        @Override
+        public Result decode(BinaryBitmap image) throws NotFoundException, ChecksumException, FormatException {
+            widths.add(image.getWidth());
+            return delegate.decode(image);
+        }
+
+        @Override
+        public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException, ChecksumException, FormatException {
+            widths.add(image.getWidth());
+            return delegate.decode(image, hints);
+        }
+
+        @Override
+        public void reset() {
+            delegate.reset();
+        }
+    }
+
+    /**
+     * @return a luminance image with a QR code in the top left corner
+     */
+    private static PlanarYUVLuminanceSource image(int barcodeSize) throws Exception {
+        BitMatrix barcode = new MultiFormatWriter().encode("pyramid", BarcodeFormat.QR_CODE, barcodeSize, barcodeSize);
+        byte[] data = new byte[SIZE * SIZE];
+        Arrays.fill(data, (byte) 255);
+        for (int y = 0; y < barcode.getHeight(); y++) {
+            for (int x = 0; x < barcode.getWidth(); x++) {
+                if (barcode.get(x, y)) {
+                    data[y * SIZE + x] = 0;
+                }
+            }
+        }
+        return new PlanarYUVLuminanceSource(data, SIZE, SIZE, 0, 0, SIZE, SIZE, false);
+    }
+
+    @Test
+    public void testDownscale() {
+        byte[] data = {
+                0, 4, 8, 8, 1,
+                4, 8, (byte) 200, (byte) 250, 1,
+                9, 9, 9, 9, 9,
+        };
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(data, 5, 3, 0, 0, 5, 3, false);
+        byte[] out = new byte[2];
+        PyramidDecoder.downscale(source, 2, new byte[5], new int[2], out);
+        assertEquals(4, out[0] & 0xff);
+        assertEquals(116, out[1] & 0xff);
+    }
+
+    @Test
+    public void testLargeBarcode() throws Exception {
+        RecordingReader reader = new RecordingReader();
+        PyramidDecoder decoder = new PyramidDecoder(reader, 2);
+        Result result = decoder.decode(image(SIZE));
+
+        assertNotNull(result);
+        assertEquals("pyramid", result.getText());
+        assertEquals(Arrays.asList(SIZE / 2), reader.widths);
+        // The points are at full resolution.
+        float maxX = 0;
+        for (ResultPoint point : result.getResultPoints()) {
+            maxX = Math.max(maxX, point.getX());
+        }
+        assertTrue(maxX > SIZE / 2);
+    }
+
+    @Test
+    public void testSmallBarcode() throws Exception {
+        RecordingReader reader = new RecordingReader();
+        PyramidDecoder decoder = new PyramidDecoder(reader, 4);
+        // One pixel per module at full resolution, too small once downscaled.
+        Result result = decoder.decode(image(29), null);
+
+        assertNotNull(result);
+        assertEquals(Arrays.asList(SIZE / 4, SIZE), reader.widths);
+    }
+}
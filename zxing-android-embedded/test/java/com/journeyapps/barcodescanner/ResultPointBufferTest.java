@@ -0,0 +1,36 @@
+package com.journeyapps.barcodescanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class ResultPointBufferTest {
+    @Test
+    public void testDrain() {
+        ResultPointBuffer buffer = new ResultPointBuffer(3);
+        float[] out = new float[6];
+        assertEquals(0, buffer.drain(out));
+
+        buffer.add(1, 2);
+        buffer.add(3, 4);
+        assertEquals(2, buffer.drain(out));
+        assertArrayEquals(new float[]{1, 2, 3, 4}, Arrays.copyOf(out, 4), 0);
+        assertEquals(0, buffer.drain(out));
+    }
+
+    @Test
+    public void testOverwriteOldest() {
+        ResultPointBuffer buffer = new ResultPointBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i, -i);
+        }
+        float[] out = new float[6];
+        assertEquals(3, buffer.drain(out));
+        assertArrayEquals(new float[]{2, -2, 3, -3, 4, -4}, out, 0);
+    }
+}
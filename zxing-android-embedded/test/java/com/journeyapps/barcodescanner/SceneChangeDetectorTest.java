@@ -0,0 +1,71 @@
+package com.journeyapps.barcodescanner;
+
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class SceneChangeDetectorTest {
+    private static byte[] signature(byte[] data, int width, int height) {
+        byte[] signature = new byte[SceneChangeDetector.SIGNATURE_LENGTH];
+        SceneChangeDetector.signature(new PlanarYUVLuminanceSource(data, width, height, 0, 0, width, height, false), signature);
+        return signature;
+    }
+
+    @Test
+    public void testSignature() {
+        int width = 320;
+        int height = 240;
+        byte[] data = new byte[width * height];
+        new Random(42).nextBytes(data);
+        byte[] noisy = data.clone();
+        Random random = new Random(7);
+        for (int i = 0; i < noisy.length; i++) {
+            noisy[i] = (byte) Math.max(0, Math.min(255, (data[i] & 0xff) + random.nextInt(5) - 2));
+        }
+        byte[] moved = data.clone();
+        // A bright object in the top left quarter.
+        for (int y = 0; y < height / 2; y++) {
+            for (int x = 0; x < width / 2; x++) {
+                moved[y * width + x] = (byte) 255;
+            }
+        }
+
+        byte[] original = signature(data, width, height);
+        assertTrue(SceneChangeDetector.difference(original, signature(noisy, width, height)) < 2);
+        assertTrue(SceneChangeDetector.difference(original, signature(moved, width, height)) > 10);
+    }
+
+    @Test
+    public void testSkipsUnchangedFrames() {
+        SceneChangeDetector detector = new SceneChangeDetector(3);
+        byte[] scene = new byte[SceneChangeDetector.SIGNATURE_LENGTH];
+        byte[] other = new byte[SceneChangeDetector.SIGNATURE_LENGTH];
+        Arrays.fill(other, (byte) 100);
+
+        assertTrue(detector.shouldDecode(scene));
+        detector.decoded(scene, false);
+        assertFalse(detector.shouldDecode(scene));
+        assertTrue(detector.shouldDecode(other));
+        detector.decoded(other, true);
+        // Keep decoding while a barcode is found.
+        assertTrue(detector.shouldDecode(other));
+        assertEquals(0.25f, detector.getSkipRatio(), 0.001f);
+
+        detector.decoded(other, false);
+        for (int i = 0; i < SceneChangeDetector.MAX_SKIPPED_IN_A_ROW; i++) {
+            assertFalse(detector.shouldDecode(other));
+        }
+        assertTrue(detector.shouldDecode(other));
+
+        detector.reset();
+        assertTrue(detector.shouldDecode(other));
+    }
+}
@@ -0,0 +1,35 @@
+package com.journeyapps.barcodescanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class SharpnessFilterTest {
+    @Test
+    public void testSkipsBlurryFrames() {
+        SharpnessFilter filter = new SharpnessFilter(0.5f);
+        assertTrue(filter.shouldDecode(100));
+        assertTrue(filter.shouldDecode(80));
+        assertFalse(filter.shouldDecode(10));
+        assertTrue(filter.shouldDecode(100));
+    }
+
+    @Test
+    public void testMaxSkippedInARow() {
+        SharpnessFilter filter = new SharpnessFilter(0.5f);
+        assertTrue(filter.shouldDecode(1000));
+        for (int i = 0; i < SharpnessFilter.MAX_SKIPPED_IN_A_ROW; i++) {
+            assertFalse(filter.shouldDecode(1));
+        }
+        assertTrue(filter.shouldDecode(1));
+        assertFalse(filter.shouldDecode(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new SharpnessFilter(1);
+    }
+}
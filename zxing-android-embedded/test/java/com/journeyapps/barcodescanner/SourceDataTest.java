@@ -0,0 +1,207 @@
+package com.journeyapps.barcodescanner;
+
+import android.graphics.ImageFormat;
+
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class SourceDataTest {
+    // Not a multiple of the rotation block size, to cover partial blocks.
+    private static final int WIDTH = 75;
+    private static final int HEIGHT = 41;
+
+    private static byte[] image(int width, int height) {
+        byte[] data = new byte[width * height * 3 / 2];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Straightforward pixel by pixel rotation, to compare the optimized versions against.
+     */
+    private static byte[] referenceRotate(int rotation, byte[] data) {
+        byte[] rotated = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                byte value = data[y * WIDTH + x];
+                switch (rotation) {
+                    case 90:
+                        rotated[x * HEIGHT + (HEIGHT - 1 - y)] = value;
+                        break;
+                    case 180:
+                        rotated[(HEIGHT - 1 - y) * WIDTH + (WIDTH - 1 - x)] = value;
+                        break;
+                    case 270:
+                        rotated[(WIDTH - 1 - x) * HEIGHT + y] = value;
+                        break;
+                    default:
+                        rotated[y * WIDTH + x] = value;
+                        break;
+                }
+            }
+        }
+        return rotated;
+    }
+
+    /**
+     * Rotate the full image, then crop. This is what createSource() used to do.
+     */
+    private static byte[] rotateThenCrop(int rotation, byte[] data, int left, int top, int width, int height) {
+        byte[] rotated = referenceRotate(rotation, data);
+        boolean rotated90 = rotation % 180 != 0;
+        int rotatedWidth = rotated90 ? HEIGHT : WIDTH;
+        int rotatedHeight = rotated90 ? WIDTH : HEIGHT;
+        byte[] matrix = new PlanarYUVLuminanceSource(rotated, rotatedWidth, rotatedHeight, left, top, width, height, false).getMatrix();
+        // For an uncropped image, getMatrix() returns the image data as is.
+        return Arrays.copyOf(matrix, width * height);
+    }
+
+    private static void assertCropEquals(int rotation, int left, int top, int width, int height) {
+        byte[] data = image(WIDTH, HEIGHT);
+        byte[] expected = rotateThenCrop(rotation, data, left, top, width, height);
+        byte[] actual = SourceData.rotateCameraPreview(rotation, data, WIDTH, HEIGHT, left, top, width, height);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testRotateCrop0() {
+        assertCropEquals(0, 0, 0, WIDTH, HEIGHT);
+        assertCropEquals(0, 20, 3, 37, 34);
+        assertCropEquals(0, 5, 40, 70, 1);
+    }
+
+    @Test
+    public void testRotateCrop90() {
+        assertCropEquals(90, 0, 0, HEIGHT, WIDTH);
+        assertCropEquals(90, 2, 30, 35, 37);
+        assertCropEquals(90, 40, 74, 1, 1);
+    }
+
+    @Test
+    public void testRotateCrop180() {
+        assertCropEquals(180, 0, 0, WIDTH, HEIGHT);
+        assertCropEquals(180, 20, 3, 37, 34);
+        assertCropEquals(180, 0, 40, 75, 1);
+    }
+
+    @Test
+    public void testRotateCrop270() {
+        assertCropEquals(270, 0, 0, HEIGHT, WIDTH);
+        assertCropEquals(270, 2, 30, 35, 37);
+        assertCropEquals(270, 0, 0, 1, 75);
+    }
+
+    @Test
+    public void testRotate() {
+        byte[] data = image(WIDTH, HEIGHT);
+        assertArrayEquals(referenceRotate(90, data), SourceData.rotateCW(data, WIDTH, HEIGHT));
+        assertArrayEquals(referenceRotate(180, data), SourceData.rotate180(data, WIDTH, HEIGHT));
+        assertArrayEquals(referenceRotate(270, data), SourceData.rotateCCW(data, WIDTH, HEIGHT));
+        assertSame(data, SourceData.rotateCameraPreview(0, data, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void testRotateIntoBuffer() {
+        byte[] data = image(WIDTH, HEIGHT);
+        byte[] dest = new byte[WIDTH * HEIGHT];
+        for (int rotation = 90; rotation < 360; rotation += 90) {
+            assertSame(dest, SourceData.rotateCameraPreview(rotation, data, WIDTH, HEIGHT, dest));
+            assertArrayEquals(referenceRotate(rotation, data), dest);
+        }
+        assertSame(data, SourceData.rotateCameraPreview(0, data, WIDTH, HEIGHT, dest));
+    }
+
+    private static void assertSensorSourceMatches(int rotation, int left, int top, int width, int height) {
+        byte[] data = image(WIDTH, HEIGHT);
+        byte[] display = SourceData.rotateCameraPreview(rotation, data, WIDTH, HEIGHT, left, top, width, height);
+        PlanarYUVLuminanceSource sensor = SourceData.createSensorSource(data, WIDTH, HEIGHT, rotation, left, top, width, height);
+        byte[] matrix = sensor.getMatrix();
+        int sensorWidth = sensor.getWidth();
+
+        assertEquals(width * height, sensorWidth * sensor.getHeight());
+        for (int sy = 0; sy < sensor.getHeight(); sy++) {
+            for (int sx = 0; sx < sensorWidth; sx++) {
+                // Translate the center of the pixel
+                ResultPoint point = SourceData.translateResultPoint(rotation, width, height, new ResultPoint(sx + 0.5f, sy + 0.5f));
+                int x = (int) point.getX();
+                int y = (int) point.getY();
+                assertEquals(display[y * width + x], matrix[sy * sensorWidth + sx]);
+            }
+        }
+    }
+
+    @Test
+    public void testSensorSource() {
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            boolean rotated90 = rotation % 180 != 0;
+            assertSensorSourceMatches(rotation, 0, 0, rotated90 ? HEIGHT : WIDTH, rotated90 ? WIDTH : HEIGHT);
+            assertSensorSourceMatches(rotation, 2, 3, 30, 20);
+            assertSensorSourceMatches(rotation, 7, 1, 9, 33);
+        }
+    }
+
+    private static PlanarYUVLuminanceSource checkerboard(int size, int square, boolean blurred) {
+        byte[] data = new byte[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                boolean black = ((x / square) + (y / square)) % 2 == 0;
+                data[y * size + x] = (byte) (black ? 0 : 255);
+            }
+        }
+        if (blurred) {
+            // Horizontal and vertical box blur
+            byte[] blur = new byte[data.length];
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int sum = 0;
+                    int count = 0;
+                    for (int d = -3; d <= 3; d++) {
+                        if (x + d >= 0 && x + d < size) {
+                            sum += data[y * size + x + d] & 0xff;
+                            count++;
+                        }
+                        if (y + d >= 0 && y + d < size) {
+                            sum += data[(y + d) * size + x] & 0xff;
+                            count++;
+                        }
+                    }
+                    blur[y * size + x] = (byte) (sum / count);
+                }
+            }
+            data = blur;
+        }
+        return new PlanarYUVLuminanceSource(data, size, size, 0, 0, size, size, false);
+    }
+
+    @Test
+    public void testSharpness() {
+        byte[] uniform = new byte[200 * 200];
+        Arrays.fill(uniform, (byte) 128);
+        assertEquals(0f, SourceData.sharpness(new PlanarYUVLuminanceSource(uniform, 200, 200, 0, 0, 200, 200, false)), 0f);
+
+        float sharp = SourceData.sharpness(checkerboard(200, 5, false));
+        float blurred = SourceData.sharpness(checkerboard(200, 5, true));
+        assertTrue(blurred > 0);
+        assertTrue(sharp > 2 * blurred);
+    }
+
+    @Test
+    public void testSetSharpness() {
+        byte[] uniform = new byte[200 * 200 * 3 / 2];
+        Arrays.fill(uniform, (byte) 128);
+        SourceData sourceData = new SourceData(uniform, 200, 200, ImageFormat.NV21, 0);
+        // The value computed by the sharpness filter, not computed again.
+        sourceData.setSharpness(42f);
+        assertEquals(42f, sourceData.getSharpness(), 0f);
+    }
+}
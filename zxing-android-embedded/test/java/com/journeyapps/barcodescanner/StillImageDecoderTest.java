@@ -0,0 +1,40 @@
+package com.journeyapps.barcodescanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class StillImageDecoderTest {
+    @Test
+    public void testSmallImage() {
+        assertEquals(Collections.singletonList(1), StillImageDecoder.sampleSizes(640, 480, 4000000));
+        assertEquals(Collections.singletonList(1), StillImageDecoder.sampleSizes(100, 100, 4000000));
+    }
+
+    @Test
+    public void testLadder() {
+        // 12 megapixels, capped at 4: 2000 x 1500 is the largest level.
+        assertEquals(Arrays.asList(4, 2), StillImageDecoder.sampleSizes(4000, 3000, 4000000));
+        assertEquals(Arrays.asList(2, 1), StillImageDecoder.sampleSizes(1920, 1080, 4000000));
+        assertEquals(Arrays.asList(4, 2, 1), StillImageDecoder.sampleSizes(2560, 1280, 4000000));
+    }
+
+    @Test
+    public void testMaxPixels() {
+        assertEquals(Arrays.asList(4, 2, 1), StillImageDecoder.sampleSizes(4000, 3000, 12000000));
+        assertEquals(Collections.singletonList(4), StillImageDecoder.sampleSizes(4000, 3000, 1000000));
+        // The cap wins over the minimum size.
+        assertEquals(Collections.singletonList(8), StillImageDecoder.sampleSizes(4000, 3000, 409600));
+    }
+
+    @Test
+    public void testHugeImage() {
+        assertEquals(Arrays.asList(32, 16), StillImageDecoder.sampleSizes(40000, 20000, 4000000));
+    }
+}
@@ -0,0 +1,53 @@
+package com.journeyapps.barcodescanner.camera;
+
+import android.graphics.ImageFormat;
+
+import com.journeyapps.barcodescanner.SourceData;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class FileFrameSourceTest {
+    @Test
+    public void testYuy2ToNv21() {
+        // 4x2 pixels: Y0 U Y1 V for every two pixels.
+        byte[] yuy2 = {
+                1, 10, 2, 20, 3, 30, 4, 40,
+                5, 50, 6, 60, 7, 70, 8, 80
+        };
+        byte[] nv21 = new byte[4 * 2 * 3 / 2];
+        FileFrameSource.yuy2ToNv21(yuy2, 4, 2, nv21);
+
+        // Y plane, then V and U from the first row.
+        byte[] expected = {
+                1, 2, 3, 4,
+                5, 6, 7, 8,
+                20, 10, 40, 30
+        };
+        assertArrayEquals(expected, nv21);
+    }
+
+    @Test
+    public void testRequestPreviewWhenClosed() {
+        FileFrameSource source = new FileFrameSource(new File("frames.nv21"), 4, 2, ImageFormat.NV21, 0);
+        assertFalse(source.isOpen());
+        // A decoder thread may request a frame just after the source was closed.
+        source.requestPreview(new PreviewCallback() {
+            @Override
+            public void onPreview(SourceData sourceData) {
+                fail();
+            }
+
+            @Override
+            public void onPreviewError(Exception e) {
+                fail();
+            }
+        });
+    }
+}